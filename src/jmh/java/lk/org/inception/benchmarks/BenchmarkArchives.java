@@ -0,0 +1,28 @@
+package lk.org.inception.benchmarks;
+
+import lk.org.inception.SyntheticArchives;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The archives every benchmark runs against. Each one holds exactly {@link #ENTRIES}
+ * entries, so results normalised per operation are per entry.
+ */
+final class BenchmarkArchives {
+
+    /** Total entries per generated archive, across all nesting levels. */
+    static final int ENTRIES = 20_000;
+
+    private static final long SEED = 42L;
+
+    private BenchmarkArchives() {
+    }
+
+    static Path create(SyntheticArchives.Shape shape, SyntheticArchives.Compression compression) throws IOException {
+        Path archive = Files.createTempFile("spork-bench-" + shape + "-" + compression + "-", ".zip");
+        SyntheticArchives.write(archive, shape, compression, ENTRIES, SEED);
+        return archive;
+    }
+}
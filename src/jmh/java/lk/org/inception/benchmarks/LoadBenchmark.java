@@ -0,0 +1,70 @@
+package lk.org.inception.benchmarks;
+
+import lk.org.inception.EffectiveSpork;
+import lk.org.inception.LoadOptions;
+import lk.org.inception.SyntheticArchives;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link EffectiveSpork#load(Path, LoadOptions)} per entry. Run with {@code -prof gc}
+ * (the default in the benchmarks profile) to get {@code gc.alloc.rate.norm}, the bytes
+ * allocated per entry.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(BenchmarkArchives.ENTRIES)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+    @Param({"FLAT", "DEEP", "WIDE", "NESTED"})
+    public SyntheticArchives.Shape shape;
+
+    @Param({"STORED", "DEFLATED"})
+    public SyntheticArchives.Compression compression;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    public LoadOptions.Storage storage;
+
+    private Path archive;
+    private LoadOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        archive = BenchmarkArchives.create(shape, compression);
+        options = LoadOptions.defaults().withStorage(storage);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(archive);
+    }
+
+    @Benchmark
+    public void load(Blackhole blackhole) throws IOException {
+        try (EffectiveSpork spork = EffectiveSpork.load(archive, options)) {
+            blackhole.consume(spork.getRootNode());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package lk.org.inception.benchmarks;
+
+import lk.org.inception.ArchiveNode;
+import lk.org.inception.ReaderContext;
+import lk.org.inception.SyntheticArchives;
+import lk.org.inception.ZipTreeBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the nested archive with a fresh {@link ReaderContext} per load against one that
+ * is kept for the whole run, to show what pooling Inflaters and buffers saves.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(BenchmarkArchives.ENTRIES)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReaderContextBenchmark {
+
+    private Path archive;
+    private ReaderContext sharedContext;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        archive = BenchmarkArchives.create(SyntheticArchives.Shape.NESTED, SyntheticArchives.Compression.DEFLATED);
+        sharedContext = new ReaderContext();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        sharedContext.close();
+        Files.deleteIfExists(archive);
+    }
+
+    @Benchmark
+    public ArchiveNode perLoadContext() throws IOException {
+        return new ZipTreeBuilder().buildTree(archive);
+    }
+
+    @Benchmark
+    public ArchiveNode sharedContext() throws IOException {
+        return new ZipTreeBuilder(sharedContext).buildTree(archive);
+    }
+}
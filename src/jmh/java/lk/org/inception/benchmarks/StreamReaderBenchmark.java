@@ -0,0 +1,179 @@
+package lk.org.inception.benchmarks;
+
+import lk.org.inception.ArchiveNode;
+import lk.org.inception.EffectiveSpork;
+import lk.org.inception.SyntheticArchives;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Streams the same archive through {@link EffectiveSpork#load(InputStream)} and through
+ * the {@link ZipInputStream} builder it replaced, to show what the pooled stream reader
+ * saves. {@code gc.alloc.rate.norm} gives the bytes allocated per entry; the
+ * {@code sourceReads} and {@code loads} counters give the read calls that reached the
+ * file, whose ratio is the reads per load.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(BenchmarkArchives.ENTRIES)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamReaderBenchmark {
+
+    @Param({"FLAT", "NESTED"})
+    public SyntheticArchives.Shape shape;
+
+    @Param({"STORED", "DEFLATED"})
+    public SyntheticArchives.Compression compression;
+
+    private Path archive;
+
+    /**
+     * Read calls made on the file stream during one iteration.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class SourceReads {
+        public long sourceReads;
+        public long loads;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            sourceReads = 0;
+            loads = 0;
+        }
+
+        void record(CountingInputStream in) {
+            sourceReads += in.reads;
+            loads++;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        archive = BenchmarkArchives.create(shape, compression);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(archive);
+    }
+
+    @Benchmark
+    public ArchiveNode zipStreamReader(SourceReads counters) throws IOException {
+        try (CountingInputStream in = new CountingInputStream(Files.newInputStream(archive))) {
+            ArchiveNode root = EffectiveSpork.load(in).getRootNode();
+            counters.record(in);
+            return root;
+        }
+    }
+
+    @Benchmark
+    public ArchiveNode jdkZipInputStream(SourceReads counters) throws IOException {
+        try (CountingInputStream in = new CountingInputStream(Files.newInputStream(archive))) {
+            ArchiveNode root = buildWithZipInputStream(in);
+            counters.record(in);
+            return root;
+        }
+    }
+
+    /**
+     * The builder as it was before the stream reader: a new {@link ZipInputStream}, with its
+     * own Inflater and buffers, for every archive level.
+     */
+    private static ArchiveNode buildWithZipInputStream(InputStream is) throws IOException {
+        ArchiveNode root = new ArchiveNode("/", null);
+        try (ZipInputStream zis = new ZipInputStream(is)) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                place(root, entry, zis);
+                zis.closeEntry();
+            }
+        }
+        return root;
+    }
+
+    private static void place(ArchiveNode root, ZipEntry entry, ZipInputStream zis) throws IOException {
+        Path path = Paths.get(entry.getName());
+        ArchiveNode currentNode = root;
+        for (int i = 0; i < path.getNameCount() - 1; i++) {
+            String part = path.getName(i).toString();
+            currentNode = currentNode.getChildren().computeIfAbsent(part, name -> new ArchiveNode(name, null));
+        }
+
+        String finalName = path.getFileName().toString();
+        ArchiveNode newNode = new ArchiveNode(finalName, entry);
+        currentNode.getChildren().put(finalName, newNode);
+
+        if (!entry.isDirectory() && entry.getName().toLowerCase().endsWith(".zip")) {
+            newNode.setNestedArchiveRoot(buildWithZipInputStream(new NonClosingInputStream(zis)));
+        }
+    }
+
+    /**
+     * Counts the read and skip calls that reach the wrapped stream.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        long reads;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            reads++;
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            reads++;
+            return in.read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            reads++;
+            return in.skip(n);
+        }
+    }
+
+    /**
+     * Lets a nested {@link ZipInputStream} be closed without closing the outer one.
+     */
+    private static final class NonClosingInputStream extends FilterInputStream {
+        NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
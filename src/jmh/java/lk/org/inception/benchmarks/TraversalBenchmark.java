@@ -0,0 +1,103 @@
+package lk.org.inception.benchmarks;
+
+import lk.org.inception.EffectiveSpork;
+import lk.org.inception.SyntheticArchives;
+import lk.org.inception.visitors.FindEmptyDirectoriesVisitor;
+import lk.org.inception.visitors.FindEmptyFilesVisitor;
+import lk.org.inception.visitors.FindFilesLargerThanVisitor;
+import lk.org.inception.visitors.HasEmptyDirectoryVisitor;
+import lk.org.inception.visitors.HasEmptyFileVisitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link EffectiveSpork#process} with each built-in visitor, and
+ * {@link EffectiveSpork#getTreeAsString()}, per entry of an already loaded tree.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(BenchmarkArchives.ENTRIES)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TraversalBenchmark {
+
+    @Param({"FLAT", "DEEP", "WIDE", "NESTED"})
+    public SyntheticArchives.Shape shape;
+
+    private EffectiveSpork spork;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path archive = BenchmarkArchives.create(shape, SyntheticArchives.Compression.DEFLATED);
+        try {
+            spork = EffectiveSpork.load(archive);
+        } finally {
+            Files.deleteIfExists(archive);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        spork.close();
+    }
+
+    @Benchmark
+    public List<String> findEmptyDirectories() {
+        FindEmptyDirectoriesVisitor visitor = new FindEmptyDirectoriesVisitor();
+        spork.process(visitor);
+        return visitor.getResult();
+    }
+
+    @Benchmark
+    public Boolean hasEmptyDirectory() {
+        HasEmptyDirectoryVisitor visitor = new HasEmptyDirectoryVisitor();
+        spork.process(visitor);
+        return visitor.getResult();
+    }
+
+    @Benchmark
+    public List<String> findEmptyFiles() {
+        FindEmptyFilesVisitor visitor = new FindEmptyFilesVisitor();
+        spork.process(visitor);
+        return visitor.getResult();
+    }
+
+    @Benchmark
+    public Boolean hasEmptyFile() {
+        HasEmptyFileVisitor visitor = new HasEmptyFileVisitor();
+        spork.process(visitor);
+        return visitor.getResult();
+    }
+
+    @Benchmark
+    public List<String> findFilesLargerThan() {
+        FindFilesLargerThanVisitor visitor = new FindFilesLargerThanVisitor(1024);
+        spork.process(visitor);
+        return visitor.getResult();
+    }
+
+    @Benchmark
+    public String getTreeAsString() {
+        return spork.getTreeAsString();
+    }
+}
@@ -0,0 +1,403 @@
+package lk.org.inception;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Random access to the bytes of an archive of any size.
+ * <p>
+ * A single ByteBuffer cannot address more than 2 GB, so the bytes are reached through
+ * windows of at most 1 GB. A file is memory-mapped one window at a time, when a window is
+ * first touched, so indexing a huge archive maps little more than its central directory.
+ * An in-memory buffer is split into windows without copying, and any other channel is read
+ * into a few small windows that are recycled as reading moves on. Fields that straddle two
+ * windows are assembled byte by byte. A {@link #slice} shares the windows of its parent,
+ * which lets a stored nested archive be read in place.
+ * <p>
+ * Instances are confined to the loading thread. Closing the instance that created the
+ * windows unmaps them at once; nothing read through it may be used afterwards.
+ */
+final class ArchiveBytes implements Closeable {
+
+    static final int DEFAULT_WINDOW_SHIFT = 30;
+
+    private final Windows windows;
+    private final long start;
+    private final long size;
+    private final boolean owner;
+
+    private ArchiveBytes(Windows windows, long start, long size, boolean owner) {
+        this.windows = windows;
+        this.start = start;
+        this.size = size;
+        this.owner = owner;
+    }
+
+    /**
+     * Maps the whole file, lazily, in windows of 1 GB. The channel stays owned by the caller.
+     */
+    static ArchiveBytes map(FileChannel channel) throws IOException {
+        return map(channel, DEFAULT_WINDOW_SHIFT);
+    }
+
+    /**
+     * @param windowShift log2 of the window size; smaller values let tests cross window
+     *                    boundaries without multi-gigabyte files.
+     */
+    static ArchiveBytes map(FileChannel channel, int windowShift) throws IOException {
+        return new ArchiveBytes(new MappedWindows(channel, windowShift), 0, channel.size(), true);
+    }
+
+    /**
+     * Wraps the bytes between the buffer's position and limit, without copying them or
+     * moving the buffer's position.
+     */
+    static ArchiveBytes wrap(ByteBuffer buffer) {
+        ByteBuffer contents = buffer.slice();
+        return new ArchiveBytes(new BufferWindows(contents, DEFAULT_WINDOW_SHIFT), 0, contents.remaining(), true);
+    }
+
+    /**
+     * Reads a channel of any kind through {@link ChannelWindows#SLOTS} recycled windows of
+     * 64 KB. The channel stays owned by the caller, and its position is moved.
+     */
+    static ArchiveBytes read(SeekableByteChannel channel) throws IOException {
+        return read(channel, ChannelWindows.DEFAULT_SHIFT);
+    }
+
+    /**
+     * @param windowShift log2 of the window size.
+     */
+    static ArchiveBytes read(SeekableByteChannel channel, int windowShift) throws IOException {
+        return new ArchiveBytes(new ChannelWindows(channel, windowShift), 0, channel.size(), true);
+    }
+
+    /**
+     * @return The number of bytes in this view.
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * @return A view of {@code length} bytes starting at {@code position}, sharing this view's windows.
+     */
+    ArchiveBytes slice(long position, long length) throws IOException {
+        checkRange(position, length);
+        return new ArchiveBytes(windows, start + position, length, false);
+    }
+
+    int getShort(long position) throws IOException {
+        checkRange(position, 2);
+        long absolute = start + position;
+        ByteBuffer window = windows.window(absolute);
+        int index = windows.indexOf(absolute);
+        if (index + 2 <= window.limit()) {
+            return window.getShort(index) & 0xffff;
+        }
+        return (int) getSpanning(absolute, 2);
+    }
+
+    long getUnsignedInt(long position) throws IOException {
+        checkRange(position, 4);
+        long absolute = start + position;
+        ByteBuffer window = windows.window(absolute);
+        int index = windows.indexOf(absolute);
+        if (index + 4 <= window.limit()) {
+            return window.getInt(index) & 0xFFFFFFFFL;
+        }
+        return getSpanning(absolute, 4);
+    }
+
+    long getLong(long position) throws IOException {
+        checkRange(position, 8);
+        long absolute = start + position;
+        ByteBuffer window = windows.window(absolute);
+        int index = windows.indexOf(absolute);
+        if (index + 8 <= window.limit()) {
+            return window.getLong(index);
+        }
+        return getSpanning(absolute, 8);
+    }
+
+    /**
+     * Copies {@code length} bytes starting at {@code position} into {@code target}.
+     */
+    void get(long position, byte[] target, int offset, int length) throws IOException {
+        checkRange(position, length);
+        long absolute = start + position;
+        while (length > 0) {
+            ByteBuffer window = windows.window(absolute).duplicate();
+            int index = windows.indexOf(absolute);
+            int n = Math.min(length, window.limit() - index);
+            // Cast for Java 8, where position(int) is only declared on Buffer.
+            ((Buffer) window).position(index);
+            window.get(target, offset, n);
+            absolute += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * @return A stream over the whole view. Closing it does nothing.
+     */
+    InputStream newInputStream() {
+        return new WindowInputStream();
+    }
+
+    /**
+     * Unmaps every window if this instance created them; closing a slice does nothing.
+     */
+    @Override
+    public void close() {
+        if (owner) {
+            windows.close();
+        }
+    }
+
+    private long getSpanning(long absolute, int length) throws IOException {
+        long value = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            ByteBuffer window = windows.window(absolute + i);
+            value = (value << 8) | (window.get(windows.indexOf(absolute + i)) & 0xff);
+        }
+        return value;
+    }
+
+    private void checkRange(long position, long length) throws EOFException {
+        if (position < 0 || length < 0 || position > size - length) {
+            throw new EOFException("Unexpected end of ZIP archive (reading " + length + " bytes at "
+                    + position + " of " + size + ")");
+        }
+    }
+
+    private final class WindowInputStream extends InputStream {
+        private long position;
+
+        @Override
+        public int read() throws IOException {
+            if (position >= size) {
+                return -1;
+            }
+            long absolute = start + position++;
+            return windows.window(absolute).get(windows.indexOf(absolute)) & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= size) {
+                return -1;
+            }
+            int n = (int) Math.min(len, size - position);
+            get(position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, size - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, size - position);
+        }
+    }
+
+    /**
+     * The fixed-size windows covering a source. A window returned by {@link #window} is
+     * only valid until the next call.
+     */
+    private abstract static class Windows {
+        private final int shift;
+        private final long mask;
+        private final long size;
+
+        Windows(long size, int shift) {
+            this.shift = shift;
+            this.mask = (1L << shift) - 1;
+            this.size = size;
+        }
+
+        final int windowOf(long position) {
+            return (int) (position >>> shift);
+        }
+
+        final int windowSize() {
+            return 1 << shift;
+        }
+
+        final long windowStart(int window) {
+            return (long) window << shift;
+        }
+
+        final int windowLength(int window) {
+            return (int) Math.min(1L << shift, size - windowStart(window));
+        }
+
+        final int indexOf(long position) {
+            return (int) (position & mask);
+        }
+
+        abstract ByteBuffer window(long position) throws IOException;
+
+        abstract void close();
+    }
+
+    /**
+     * Windows that stay valid once loaded, kept until the source is closed.
+     */
+    private abstract static class LazyWindows extends Windows {
+        private final ByteBuffer[] loaded;
+
+        LazyWindows(long size, int shift) {
+            super(size, shift);
+            this.loaded = new ByteBuffer[windowOf(size + (1L << shift) - 1)];
+        }
+
+        @Override
+        final ByteBuffer window(long position) throws IOException {
+            int window = windowOf(position);
+            ByteBuffer buffer = loaded[window];
+            if (buffer == null) {
+                buffer = load(windowStart(window), windowLength(window)).order(ByteOrder.LITTLE_ENDIAN);
+                loaded[window] = buffer;
+            }
+            return buffer;
+        }
+
+        @Override
+        final void close() {
+            for (int i = 0; i < loaded.length; i++) {
+                if (loaded[i] != null) {
+                    release(loaded[i]);
+                    loaded[i] = null;
+                }
+            }
+        }
+
+        abstract ByteBuffer load(long position, int length) throws IOException;
+
+        abstract void release(ByteBuffer window);
+    }
+
+    private static final class MappedWindows extends LazyWindows {
+        private final FileChannel channel;
+
+        MappedWindows(FileChannel channel, int shift) throws IOException {
+            super(channel.size(), shift);
+            this.channel = channel;
+        }
+
+        @Override
+        ByteBuffer load(long position, int length) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        }
+
+        @Override
+        void release(ByteBuffer window) {
+            DirectBuffers.release(window);
+        }
+    }
+
+    private static final class BufferWindows extends LazyWindows {
+        private final ByteBuffer contents;
+
+        BufferWindows(ByteBuffer contents, int shift) {
+            super(contents.remaining(), shift);
+            this.contents = contents;
+        }
+
+        @Override
+        ByteBuffer load(long position, int length) {
+            ByteBuffer window = contents.duplicate();
+            ((Buffer) window).position((int) position);
+            ((Buffer) window).limit((int) position + length);
+            return window.slice();
+        }
+
+        @Override
+        void release(ByteBuffer window) {
+            // The buffer belongs to the caller.
+        }
+    }
+
+    /**
+     * A few heap windows read from the channel on demand; the least recently used one is
+     * refilled when a new window is needed. This bounds memory however much of a large
+     * channel is read, and keeps a nested archive's local headers, central directory and
+     * the enclosing directory in memory together.
+     */
+    private static final class ChannelWindows extends Windows {
+        static final int DEFAULT_SHIFT = 16;
+        static final int SLOTS = 8;
+
+        private final SeekableByteChannel channel;
+        private final ByteBuffer[] buffers = new ByteBuffer[SLOTS];
+        private final int[] windows = new int[SLOTS];
+        private final long[] lastUsed = new long[SLOTS];
+        private long clock;
+
+        ChannelWindows(SeekableByteChannel channel, int shift) throws IOException {
+            super(channel.size(), shift);
+            this.channel = channel;
+            Arrays.fill(windows, -1);
+        }
+
+        @Override
+        ByteBuffer window(long position) throws IOException {
+            int window = windowOf(position);
+            int victim = 0;
+            for (int slot = 0; slot < SLOTS; slot++) {
+                if (windows[slot] == window) {
+                    lastUsed[slot] = ++clock;
+                    return buffers[slot];
+                }
+                if (lastUsed[slot] < lastUsed[victim]) {
+                    victim = slot;
+                }
+            }
+            ByteBuffer buffer = buffers[victim];
+            if (buffer == null) {
+                buffer = ByteBuffer.allocate(windowSize()).order(ByteOrder.LITTLE_ENDIAN);
+                buffers[victim] = buffer;
+            }
+            fill(buffer, window);
+            windows[victim] = window;
+            lastUsed[victim] = ++clock;
+            return buffer;
+        }
+
+        private void fill(ByteBuffer buffer, int window) throws IOException {
+            ((Buffer) buffer).clear();
+            ((Buffer) buffer).limit(windowLength(window));
+            channel.position(windowStart(window));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Unexpected end of channel");
+                }
+            }
+        }
+
+        @Override
+        void close() {
+            Arrays.fill(buffers, null);
+            Arrays.fill(windows, -1);
+        }
+    }
+}
@@ -1,28 +1,89 @@
 package lk.org.inception;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.zip.ZipEntry;
 
+/**
+ * A node of the archive tree: a file, a directory, or the root of an archive.
+ * <p>
+ * Nodes are mutable while the tree is being built. Once {@link #freeze()} has been called
+ * the node and everything below it, including nested archives, can no longer be changed;
+ * a frozen tree published through a final field (as {@link EffectiveSpork} does) may be read
+ * from any number of threads without locking. Freezing also swaps each node's
+ * {@link ZipEntry} for a read-only copy, whose setters throw.
+ */
 public class ArchiveNode {
     private final String name;
-    private final ZipEntry entry;
-    private final Map<String, ArchiveNode> children = new LinkedHashMap<>();
+    private ZipEntry entry;
+    private final long localHeaderOffset;
+    private Map<String, ArchiveNode> children;
     private ArchiveNode nestedArchiveRoot;
+    private long fingerprint;
+    private boolean frozen;
 
     public ArchiveNode(String name, ZipEntry entry) {
+        this(name, entry, -1);
+    }
+
+    /**
+     * @param localHeaderOffset Where the entry's local header starts in its archive, or -1 if unknown.
+     */
+    public ArchiveNode(String name, ZipEntry entry, long localHeaderOffset) {
         this.name = name;
         this.entry = entry;
+        this.localHeaderOffset = localHeaderOffset;
+        this.children = new LinkedHashMap<>();
+    }
+
+    /**
+     * A mutable copy of a node that shares its children, nested archive and entry.
+     */
+    ArchiveNode(ArchiveNode original) {
+        this.name = original.name;
+        this.entry = original.entry;
+        this.localHeaderOffset = original.localHeaderOffset;
+        this.children = new LinkedHashMap<>(original.children);
+        this.nestedArchiveRoot = original.nestedArchiveRoot;
+        this.fingerprint = original.fingerprint;
+    }
+
+    /**
+     * For read-only views whose subclass supplies every accessor from other storage.
+     */
+    ArchiveNode() {
+        this.name = null;
+        this.entry = null;
+        this.localHeaderOffset = -1;
+        this.children = Collections.emptyMap();
+        this.frozen = true;
     }
 
     public String getName() {
         return name;
     }
 
+    /**
+     * @return The entry this node was read from, or null for implicit directories and archive
+     * roots; read-only once the node is frozen.
+     */
     public ZipEntry getEntry() {
         return entry;
     }
 
+    /**
+     * @return The offset of the entry's local file header within the archive that directly
+     * contains it (for an entry of a nested archive, within that nested archive), or -1 for
+     * implicit directories, archive roots and nodes built by hand.
+     */
+    public long getLocalHeaderOffset() {
+        return localHeaderOffset;
+    }
+
+    /**
+     * @return The children keyed by name; a read-only view once the node is frozen.
+     */
     public Map<String, ArchiveNode> getChildren() {
         return children;
     }
@@ -35,9 +96,58 @@ public class ArchiveNode {
         return nestedArchiveRoot;
     }
 
+    /**
+     * @throws IllegalStateException If this node has been frozen.
+     */
     public void setNestedArchiveRoot(ArchiveNode nestedArchiveRoot) {
+        if (frozen) {
+            throw new IllegalStateException("Cannot modify frozen node: " + name);
+        }
         this.nestedArchiveRoot = nestedArchiveRoot;
-    }/**
+    }
+
+    /**
+     * @return The fingerprint of this node's subtree recorded when its archive was loaded,
+     * or 0 for a node built by hand; see {@link TreeDiffer}.
+     */
+    long getFingerprint() {
+        return fingerprint;
+    }
+
+    void setFingerprint(long fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * @return true if this node and its subtree are read-only.
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Makes this node and its whole subtree, nested archives included, permanently
+     * read-only, replacing every child map with a compact immutable copy and every entry
+     * with a read-only one.
+     * @return This node, for chaining.
+     */
+    public ArchiveNode freeze() {
+        if (frozen) {
+            return this;
+        }
+        for (ArchiveNode child : children.values()) {
+            child.freeze();
+        }
+        if (nestedArchiveRoot != null) {
+            nestedArchiveRoot.freeze();
+        }
+        children = CompactChildMap.copyOf(children);
+        entry = FrozenZipEntry.of(entry);
+        frozen = true;
+        return this;
+    }
+
+    /**
      * A convenient utility method to print the tree structure to the console.
      * It is a wrapper around the testable getTreeAsString() method.
      */
@@ -60,6 +170,8 @@ public class ArchiveNode {
      * Recursive helper to build the tree string with proper indentation.
      */
     private void buildTreeString(StringBuilder builder, String indent) {
+        String name = getName();
+        ZipEntry entry = getEntry();
         String meta = "";
         if (entry != null && !entry.isDirectory()) {
             meta = String.format(" (size: %d)", entry.getSize());
@@ -70,6 +182,7 @@ public class ArchiveNode {
                 .append(meta)
                 .append(System.lineSeparator());
 
+        ArchiveNode nestedArchiveRoot = getNestedArchiveRoot();
         if (nestedArchiveRoot != null) {
             builder.append(indent)
                     .append("  +-- [Nested Archive: ")
@@ -79,7 +192,7 @@ public class ArchiveNode {
             nestedArchiveRoot.buildTreeString(builder, indent + "  |  ");
         }
 
-        for (ArchiveNode child : children.values()) {
+        for (ArchiveNode child : getChildren().values()) {
             child.buildTreeString(builder, indent + "   ");
         }
     }
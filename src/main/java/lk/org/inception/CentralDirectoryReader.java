@@ -0,0 +1,328 @@
+package lk.org.inception;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the entries of a ZIP archive from its central directory, without touching any
+ * entry data.
+ * <p>
+ * Zip64 archives are fully supported: the Zip64 end of central directory record supplies
+ * entry counts above 65,535 and directory offsets beyond 4 GB, and each entry's Zip64
+ * extended information field supplies its sizes and local header offset. Data prepended
+ * to the archive, as in self-extracting files, is allowed; every offset reported is
+ * relative to the start of the {@link ArchiveBytes} being read.
+ */
+final class CentralDirectoryReader {
+
+    private static final int CENSIG = 0x02014b50;
+    private static final int LOCSIG = 0x04034b50;
+    private static final int ENDSIG = 0x06054b50;
+    private static final int ZIP64_ENDSIG = 0x06064b50;
+    private static final int ZIP64_LOCSIG = 0x07064b50;
+    private static final int CENHDR = 46;
+    private static final int LOCHDR = 30;
+    private static final int ENDHDR = 22;
+    private static final int ZIP64_ENDHDR = 56;
+    private static final int ZIP64_LOCHDR = 20;
+    private static final int MAX_COMMENT = 0xFFFF;
+    private static final int ZIP64_EXTID = 0x0001;
+    private static final long ZIP64_MAGICVAL = 0xFFFFFFFFL;
+
+    private static final int CHECKSUM_BUFFER_SIZE = 64 * 1024;
+
+    private final ArchiveBytes bytes;
+    private final long totalEntries;
+    /** Added to every recorded offset to account for data prepended to the archive. */
+    private final long base;
+    private final long directoryStart;
+    private final long directorySize;
+    private final DosTimeCache times = new DosTimeCache();
+    /** Reused for every entry name, grown to the longest one seen. */
+    private byte[] nameBuffer = new byte[256];
+    private long position;
+    private long bytesRead;
+    private int entryCount;
+    private long localHeaderOffset = -1;
+
+    private CentralDirectoryReader(ArchiveBytes bytes, long totalEntries, long base, long directoryStart,
+                                   long directorySize, long bytesRead) {
+        this.bytes = bytes;
+        this.totalEntries = totalEntries;
+        this.base = base;
+        this.directoryStart = directoryStart;
+        this.directorySize = directorySize;
+        this.position = directoryStart;
+        this.bytesRead = bytesRead;
+    }
+
+    /**
+     * Locates the central directory through the end records.
+     * @return A reader positioned at the first entry, or null if there is no end of central
+     * directory record, e.g. because the archive is truncated or is not a ZIP file at all.
+     */
+    static CentralDirectoryReader open(ArchiveBytes bytes) throws IOException {
+        long end = findEndRecord(bytes);
+        if (end == -1) {
+            return null;
+        }
+        long totalEntries = bytes.getShort(end + 10);
+        long directorySize = bytes.getUnsignedInt(end + 12);
+        long directoryOffset = bytes.getUnsignedInt(end + 16);
+        long directoryEnd = end;
+        long bytesRead = ENDHDR + bytes.getShort(end + 20);
+
+        long locator = end - ZIP64_LOCHDR;
+        if (locator >= 0 && bytes.getUnsignedInt(locator) == ZIP64_LOCSIG) {
+            long zip64End = findZip64EndRecord(bytes, locator);
+            totalEntries = bytes.getLong(zip64End + 32);
+            directorySize = bytes.getLong(zip64End + 40);
+            directoryOffset = bytes.getLong(zip64End + 48);
+            directoryEnd = zip64End;
+            bytesRead += ZIP64_LOCHDR + ZIP64_ENDHDR;
+        }
+
+        long directoryStart = directoryEnd - directorySize;
+        long base = directoryStart - directoryOffset;
+        if (directorySize < 0 || directoryStart < 0 || base < 0) {
+            throw new ZipException("invalid END header (bad central directory offset)");
+        }
+        return new CentralDirectoryReader(bytes, totalEntries, base, directoryStart, directorySize, bytesRead);
+    }
+
+    /**
+     * Moves past records whose entries are already known, as when only the records added
+     * to a growing archive are wanted; call before reading any entry.
+     * @param entries How many records to skip.
+     * @param length  How many bytes of central directory they take.
+     */
+    void skip(long entries, long length) {
+        entryCount = (int) entries;
+        position = directoryStart + length;
+    }
+
+    /**
+     * @param length How many bytes, from the start of the central directory, to check.
+     * @return The CRC-32 of the first {@code length} bytes of the central directory.
+     */
+    long checksum(long length) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[(int) Math.min(CHECKSUM_BUFFER_SIZE, Math.max(length, 0))];
+        for (long done = 0; done < length; ) {
+            int chunk = (int) Math.min(buffer.length, length - done);
+            bytes.get(directoryStart + done, buffer, 0, chunk);
+            crc.update(buffer, 0, chunk);
+            done += chunk;
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * @return How many entries the end records say the central directory holds.
+     */
+    long getTotalEntries() {
+        return totalEntries;
+    }
+
+    /**
+     * @return Where the central directory starts.
+     */
+    long getDirectoryStart() {
+        return directoryStart;
+    }
+
+    /**
+     * @return How many bytes the central directory takes.
+     */
+    long getDirectorySize() {
+        return directorySize;
+    }
+
+    /**
+     * @return How many bytes were prepended to the archive; recorded offsets are relative to them.
+     */
+    long getBase() {
+        return base;
+    }
+
+    /**
+     * Reads the next central directory header.
+     * @return The next entry, with its sizes, CRC and extra data filled in, or null after the last one.
+     */
+    ZipEntry getNextEntry() throws IOException {
+        if (entryCount == totalEntries) {
+            return null;
+        }
+        if (bytes.getUnsignedInt(position) != CENSIG) {
+            throw new ZipException("invalid CEN header (bad signature)");
+        }
+        int method = bytes.getShort(position + 10);
+        long dosTime = bytes.getUnsignedInt(position + 12);
+        long crc = bytes.getUnsignedInt(position + 16);
+        long compressedSize = bytes.getUnsignedInt(position + 20);
+        long size = bytes.getUnsignedInt(position + 24);
+        int nameLength = bytes.getShort(position + 28);
+        int extraLength = bytes.getShort(position + 30);
+        int commentLength = bytes.getShort(position + 32);
+        long offset = bytes.getUnsignedInt(position + 42);
+
+        if (nameBuffer.length < nameLength) {
+            nameBuffer = new byte[nameLength];
+        }
+        bytes.get(position + CENHDR, nameBuffer, 0, nameLength);
+        ZipEntry entry = new ZipEntry(new String(nameBuffer, 0, nameLength, StandardCharsets.UTF_8));
+        entryCount++;
+        if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED) {
+            throw new ZipException("invalid compression method " + method + " for entry " + entry.getName());
+        }
+        entry.setMethod(method);
+        times.setTime(entry, dosTime);
+
+        if (extraLength > 0) {
+            byte[] extra = new byte[extraLength];
+            bytes.get(position + CENHDR + nameLength, extra, 0, extraLength);
+            entry.setExtra(extra);
+            if (size == ZIP64_MAGICVAL || compressedSize == ZIP64_MAGICVAL || offset == ZIP64_MAGICVAL) {
+                long[] values = readZip64Fields(extra, size, compressedSize, offset);
+                size = values[0];
+                compressedSize = values[1];
+                offset = values[2];
+            }
+        }
+        if (commentLength > 0) {
+            byte[] comment = new byte[commentLength];
+            bytes.get(position + CENHDR + nameLength + extraLength, comment, 0, commentLength);
+            entry.setComment(new String(comment, StandardCharsets.UTF_8));
+        }
+        entry.setCrc(crc);
+        entry.setSize(size);
+        entry.setCompressedSize(compressedSize);
+
+        localHeaderOffset = base + offset;
+        int headerLength = CENHDR + nameLength + extraLength + commentLength;
+        position += headerLength;
+        bytesRead += headerLength;
+        return entry;
+    }
+
+    /**
+     * @return Where the local header of the last entry returned starts.
+     */
+    long getLocalHeaderOffset() {
+        return localHeaderOffset;
+    }
+
+    /**
+     * Reads the local header of the last entry returned to find where its data starts,
+     * since the local name and extra fields may differ in length from the central ones.
+     */
+    long getDataOffset() throws IOException {
+        if (bytes.getUnsignedInt(localHeaderOffset) != LOCSIG) {
+            throw new ZipException("invalid LOC header (bad signature)");
+        }
+        int nameLength = bytes.getShort(localHeaderOffset + 26);
+        int extraLength = bytes.getShort(localHeaderOffset + 28);
+        bytesRead += LOCHDR;
+        return localHeaderOffset + LOCHDR + nameLength + extraLength;
+    }
+
+    /**
+     * @return How many bytes of end records, central directory and local headers have been read.
+     */
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return How many entries have been read so far.
+     */
+    int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Scans backwards over the space a trailing comment may take for the end record signature.
+     */
+    private static long findEndRecord(ArchiveBytes bytes) throws IOException {
+        long last = bytes.size() - ENDHDR;
+        if (last < 0) {
+            return -1;
+        }
+        long first = Math.max(0, last - MAX_COMMENT);
+        byte[] tail = new byte[(int) (bytes.size() - first)];
+        bytes.get(first, tail, 0, tail.length);
+        for (int i = (int) (last - first); i >= 0; i--) {
+            if (getShort(tail, i) == (ENDSIG & 0xffff) && getShort(tail, i + 2) == ENDSIG >>> 16) {
+                int commentLength = getShort(tail, i + 20);
+                if (i + ENDHDR + commentLength <= tail.length) {
+                    return first + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int getShort(byte[] b, int off) {
+        return (b[off] & 0xff) | ((b[off + 1] & 0xff) << 8);
+    }
+
+    private static long findZip64EndRecord(ArchiveBytes bytes, long locator) throws IOException {
+        long recorded = bytes.getLong(locator + 8);
+        if (recorded >= 0 && recorded <= bytes.size() - ZIP64_ENDHDR
+                && bytes.getUnsignedInt(recorded) == ZIP64_ENDSIG) {
+            return recorded;
+        }
+        // With data prepended the recorded offset is off; the record normally sits right before its locator.
+        long adjacent = locator - ZIP64_ENDHDR;
+        if (adjacent >= 0 && bytes.getUnsignedInt(adjacent) == ZIP64_ENDSIG) {
+            return adjacent;
+        }
+        throw new ZipException("invalid Zip64 END header (bad signature)");
+    }
+
+    private static long[] readZip64Fields(byte[] extra, long size, long compressedSize, long offset)
+            throws ZipException {
+        int off = 0;
+        while (off + 4 <= extra.length) {
+            int tag = getShort(extra, off);
+            int length = getShort(extra, off + 2);
+            off += 4;
+            if (off + length > extra.length) {
+                break;
+            }
+            if (tag == ZIP64_EXTID) {
+                // Only the fields whose header value overflowed are present, always in this order.
+                int field = off;
+                int end = off + length;
+                if (size == ZIP64_MAGICVAL) {
+                    size = readZip64Field(extra, field, end);
+                    field += 8;
+                }
+                if (compressedSize == ZIP64_MAGICVAL) {
+                    compressedSize = readZip64Field(extra, field, end);
+                    field += 8;
+                }
+                if (offset == ZIP64_MAGICVAL) {
+                    offset = readZip64Field(extra, field, end);
+                }
+                break;
+            }
+            off += length;
+        }
+        return new long[]{size, compressedSize, offset};
+    }
+
+    private static long readZip64Field(byte[] extra, int field, int end) throws ZipException {
+        if (field + 8 > end) {
+            throw new ZipException("invalid zip64 extra data field size");
+        }
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (extra[field + i] & 0xff);
+        }
+        return value;
+    }
+}
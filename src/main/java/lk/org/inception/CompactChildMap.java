@@ -0,0 +1,163 @@
+package lk.org.inception;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only child map for frozen nodes. Children are kept in a single array in
+ * insertion order and keyed by their own name, so no per-entry objects are retained;
+ * only a map with a child stored under another key keeps its keys as well.
+ * Small maps are searched linearly; larger ones get an open-addressing index of ints.
+ */
+final class CompactChildMap extends AbstractMap<String, ArchiveNode> {
+
+    private static final int LINEAR_SCAN_LIMIT = 8;
+
+    private final ArchiveNode[] nodes;
+    /** The key of each node, or null when every node is stored under its own name. */
+    private final String[] keys;
+    private final int[] index;
+
+    private CompactChildMap(ArchiveNode[] nodes, String[] keys) {
+        this.nodes = nodes;
+        this.keys = keys;
+        this.index = nodes.length > LINEAR_SCAN_LIMIT ? buildIndex() : null;
+    }
+
+    /**
+     * Copies the given children into the most compact read-only map that can hold them,
+     * under the same keys.
+     */
+    static Map<String, ArchiveNode> copyOf(Map<String, ArchiveNode> children) {
+        if (children.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        ArchiveNode[] nodes = new ArchiveNode[children.size()];
+        String[] keys = null;
+        int i = 0;
+        for (Map.Entry<String, ArchiveNode> child : children.entrySet()) {
+            String key = child.getKey();
+            if (key == null) {
+                throw new IllegalStateException("Child '" + child.getValue().getName() + "' is stored under a null key");
+            }
+            nodes[i] = child.getValue();
+            if (keys == null && !key.equals(nodes[i].getName())) {
+                keys = new String[nodes.length];
+                for (int j = 0; j < i; j++) {
+                    keys[j] = nodes[j].getName();
+                }
+            }
+            if (keys != null) {
+                keys[i] = key;
+            }
+            i++;
+        }
+        return new CompactChildMap(nodes, keys);
+    }
+
+    private String key(int i) {
+        return keys == null ? nodes[i].getName() : keys[i];
+    }
+
+    private int[] buildIndex() {
+        int capacity = Integer.highestOneBit(nodes.length * 2 - 1) << 1;
+        int[] index = new int[capacity];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < nodes.length; i++) {
+            int slot = key(i).hashCode() & (capacity - 1);
+            while (index[slot] != -1) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            index[slot] = i;
+        }
+        return index;
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        if (index == null) {
+            for (int i = 0; i < nodes.length; i++) {
+                if (key(i).equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = index.length - 1;
+        int slot = key.hashCode() & mask;
+        int candidate;
+        while ((candidate = index[slot]) != -1) {
+            if (key(candidate).equals(key)) {
+                return candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return nodes.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return nodes.length == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public ArchiveNode get(Object key) {
+        int i = indexOf(key);
+        return i >= 0 ? nodes[i] : null;
+    }
+
+    @Override
+    public Collection<ArchiveNode> values() {
+        return Collections.unmodifiableList(Arrays.asList(nodes));
+    }
+
+    @Override
+    public Set<Map.Entry<String, ArchiveNode>> entrySet() {
+        return new AbstractSet<Map.Entry<String, ArchiveNode>>() {
+            @Override
+            public Iterator<Map.Entry<String, ArchiveNode>> iterator() {
+                return new Iterator<Map.Entry<String, ArchiveNode>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < nodes.length;
+                    }
+
+                    @Override
+                    public Map.Entry<String, ArchiveNode> next() {
+                        if (next >= nodes.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = next++;
+                        return new SimpleImmutableEntry<>(key(i), nodes[i]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return nodes.length;
+            }
+        };
+    }
+}
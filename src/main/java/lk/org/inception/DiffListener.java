@@ -0,0 +1,30 @@
+package lk.org.inception;
+
+/**
+ * Receives the differences found by {@link EffectiveSpork#diff(EffectiveSpork, DiffListener)}
+ * as they are discovered, so a diff of two huge archives never has to be held in memory.
+ * Paths use the same format as the paths passed to visitors.
+ */
+@FunctionalInterface
+public interface DiffListener {
+
+    /**
+     * The kind of difference reported for a node.
+     */
+    enum Kind {
+        /** The node only exists in the newer tree; oldNode is null. */
+        ADDED,
+        /** The node only exists in the older tree; newNode is null. */
+        REMOVED,
+        /** The node exists in both trees but its size, CRC or type differs. */
+        CHANGED
+    }
+
+    /**
+     * @param kind    What happened to the node.
+     * @param path    The full path of the node.
+     * @param oldNode The node in the older tree, or null if it was added.
+     * @param newNode The node in the newer tree, or null if it was removed.
+     */
+    void onDifference(Kind kind, String path, ArchiveNode oldNode, ArchiveNode newNode);
+}
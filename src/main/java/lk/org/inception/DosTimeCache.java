@@ -0,0 +1,47 @@
+package lk.org.inception;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.zip.ZipEntry;
+
+/**
+ * Sets entry modification times from MS-DOS date/time fields without going through epoch
+ * millis. {@link ZipEntry#setTimeLocal} stores the DOS fields as they are, which is what the
+ * JDK's own readers keep, and entries in one archive almost always share a handful of
+ * timestamps, so the last field and its {@link LocalDateTime} are kept and reused.
+ * <p>
+ * Not thread-safe: each reader owns one.
+ */
+final class DosTimeCache {
+
+    private long lastDosTime = -1;
+    private LocalDateTime lastTime;
+
+    /**
+     * Sets the time of {@code entry} from a DOS date/time field, or leaves it unset if the
+     * field is not a valid date.
+     */
+    void setTime(ZipEntry entry, long dosTime) {
+        if (dosTime != lastDosTime) {
+            lastTime = toLocalDateTime(dosTime);
+            lastDosTime = dosTime;
+        }
+        if (lastTime != null) {
+            entry.setTimeLocal(lastTime);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long dosTime) {
+        try {
+            return LocalDateTime.of(
+                    (int) (((dosTime >> 25) & 0x7f) + 1980),
+                    (int) ((dosTime >> 21) & 0x0f),
+                    (int) ((dosTime >> 16) & 0x1f),
+                    (int) ((dosTime >> 11) & 0x1f),
+                    (int) ((dosTime >> 5) & 0x3f),
+                    (int) ((dosTime << 1) & 0x3e));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+}
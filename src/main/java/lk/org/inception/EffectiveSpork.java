@@ -1,22 +1,46 @@
 package lk.org.inception;
 
+import lk.org.inception.metrics.MetricsListener;
 import lk.org.inception.visitors.*;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.List;
+import java.util.zip.ZipEntry;
 
 /**
  * The main public API (Facade) for the effective-spork library.
  * This class provides a simple entry point for all functionality.
+ * <p>
+ * An instance loaded with {@link LoadOptions#withFrozen(boolean) frozen} options is
+ * immutable: {@link #process(TreeVisitor[])} and every query method may then be called
+ * concurrently from any number of threads without locking, as long as each call uses
+ * its own visitors. Off-heap trees (see {@link LoadOptions.Storage}) are always read-only
+ * and hold native memory until {@link #close()} is called; closing a heap-backed
+ * instance does nothing.
  */
-public class EffectiveSpork {
+public class EffectiveSpork implements AutoCloseable {
 
     private final ArchiveNode rootNode;
+    private final OffHeapTree offHeapTree;
+    private final MetricsListener metricsListener;
+    private final LoadOptions options;
+    /** The file the tree was loaded from, for {@link #refresh()}; null for other sources. */
+    private final SourceFile sourceFile;
 
-    private EffectiveSpork(ArchiveNode rootNode) {
+    private EffectiveSpork(ArchiveNode rootNode, OffHeapTree offHeapTree, LoadOptions options, SourceFile sourceFile) {
         this.rootNode = rootNode;
+        this.offHeapTree = offHeapTree;
+        this.metricsListener = options.getMetricsListener();
+        this.options = options;
+        this.sourceFile = sourceFile;
     }
 
     /**
@@ -26,9 +50,280 @@ public class EffectiveSpork {
      * @throws IOException If there is an error reading the file.
      */
     public static EffectiveSpork load(Path zipPath) throws IOException {
-        ZipTreeBuilder builder = new ZipTreeBuilder();
-        ArchiveNode root = builder.buildTree(zipPath);
-        return new EffectiveSpork(root);
+        return load(zipPath, LoadOptions.defaults());
+    }
+
+    /**
+     * Loads and parses a ZIP file, including any nested archives, with the given options.
+     * @param zipPath The path to the ZIP file.
+     * @param options How the tree should be built.
+     * @return An EffectiveSpork instance ready for querying.
+     * @throws IOException If there is an error reading the file.
+     */
+    public static EffectiveSpork load(Path zipPath, LoadOptions options) throws IOException {
+        // Taken before reading, so a change made during the load is picked up by the next refresh.
+        long size = Files.size(zipPath);
+        long lastModifiedMillis = Files.getLastModifiedTime(zipPath).toMillis();
+        try (FileChannel channel = FileChannel.open(zipPath, StandardOpenOption.READ);
+             ArchiveBytes bytes = ArchiveBytes.map(channel)) {
+            SourceFile sourceFile = SourceFile.of(zipPath, size, lastModifiedMillis, CentralDirectoryReader.open(bytes));
+            return load(pathSource(bytes, zipPath), options, sourceFile);
+        }
+    }
+
+    private static TreeSource pathSource(ArchiveBytes bytes, Path zipPath) {
+        return new TreeSource() {
+            @Override
+            public <N> N buildTree(ZipTreeBuilder builder, TreeSink<N> sink) throws IOException {
+                return builder.buildTree(bytes, zipPath.toString(), sink);
+            }
+        };
+    }
+
+    /**
+     * Loads and parses a ZIP archive held in memory, including any nested archives.
+     * @param zipBytes The archive; it is read in place, not copied.
+     * @return An EffectiveSpork instance ready for querying.
+     * @throws IOException If the archive is malformed.
+     */
+    public static EffectiveSpork load(byte[] zipBytes) throws IOException {
+        return load(zipBytes, LoadOptions.defaults());
+    }
+
+    /**
+     * Loads and parses a ZIP archive held in memory, including any nested archives, with the given options.
+     * @param zipBytes The archive; it is read in place, not copied.
+     * @param options  How the tree should be built.
+     * @return An EffectiveSpork instance ready for querying.
+     * @throws IOException If the archive is malformed.
+     */
+    public static EffectiveSpork load(byte[] zipBytes, LoadOptions options) throws IOException {
+        return load(ByteBuffer.wrap(zipBytes), options);
+    }
+
+    /**
+     * Loads and parses the ZIP archive between the buffer's position and limit, including
+     * any nested archives.
+     * @param zipBuffer The archive, heap or direct; it is read in place and its position is left unchanged.
+     * @return An EffectiveSpork instance ready for querying.
+     * @throws IOException If the archive is malformed.
+     */
+    public static EffectiveSpork load(ByteBuffer zipBuffer) throws IOException {
+        return load(zipBuffer, LoadOptions.defaults());
+    }
+
+    /**
+     * Loads and parses the ZIP archive between the buffer's position and limit, including
+     * any nested archives, with the given options. The archive is indexed through its
+     * central directory and stored nested archives are read without copying.
+     * @param zipBuffer The archive, heap or direct; it is read in place and its position is left unchanged.
+     * @param options   How the tree should be built.
+     * @return An EffectiveSpork instance ready for querying.
+     * @throws IOException If the archive is malformed.
+     */
+    public static EffectiveSpork load(ByteBuffer zipBuffer, LoadOptions options) throws IOException {
+        try (ArchiveBytes bytes = ArchiveBytes.wrap(zipBuffer)) {
+            return load(bytes, "ByteBuffer", options);
+        }
+    }
+
+    /**
+     * Loads and parses a ZIP archive from a channel, including any nested archives.
+     * @param channel The archive, read with random access; the caller keeps ownership and closes it.
+     * @return An EffectiveSpork instance ready for querying.
+     * @throws IOException If there is an error reading the channel.
+     */
+    public static EffectiveSpork load(SeekableByteChannel channel) throws IOException {
+        return load(channel, LoadOptions.defaults());
+    }
+
+    /**
+     * Loads and parses a ZIP archive from a channel, including any nested archives, with
+     * the given options. The archive is indexed through its central directory: a
+     * {@link FileChannel} is memory-mapped, any other channel is read a few small windows
+     * at a time, so only the end records, the central directory and nested archives are read.
+     * @param channel The archive, read with random access; the caller keeps ownership and
+     *                closes it. Its position is moved.
+     * @param options How the tree should be built.
+     * @return An EffectiveSpork instance ready for querying.
+     * @throws IOException If there is an error reading the channel.
+     */
+    public static EffectiveSpork load(SeekableByteChannel channel, LoadOptions options) throws IOException {
+        try (ArchiveBytes bytes = channel instanceof FileChannel
+                ? ArchiveBytes.map((FileChannel) channel) : ArchiveBytes.read(channel)) {
+            return load(bytes, channel.getClass().getSimpleName(), options);
+        }
+    }
+
+    /**
+     * Loads and parses a ZIP archive from a stream, including any nested archives.
+     * @param zipStream The archive, read once from start to end; the caller closes it.
+     * @return An EffectiveSpork instance ready for querying.
+     * @throws IOException If there is an error reading the stream.
+     */
+    public static EffectiveSpork load(InputStream zipStream) throws IOException {
+        return load(zipStream, LoadOptions.defaults());
+    }
+
+    /**
+     * Loads and parses a ZIP archive from a stream, including any nested archives, with
+     * the given options. A stream allows no random access, so every local header and all
+     * entry data are read in order; prefer a byte array, buffer or channel when there is one.
+     * @param zipStream The archive, read once from start to end; the caller closes it.
+     * @param options   How the tree should be built.
+     * @return An EffectiveSpork instance ready for querying.
+     * @throws IOException If there is an error reading the stream.
+     */
+    public static EffectiveSpork load(InputStream zipStream, LoadOptions options) throws IOException {
+        return load(new TreeSource() {
+            @Override
+            public <N> N buildTree(ZipTreeBuilder builder, TreeSink<N> sink) throws IOException {
+                return builder.buildTree(zipStream, "InputStream", sink);
+            }
+        }, options);
+    }
+
+    private static EffectiveSpork load(ArchiveBytes bytes, String source, LoadOptions options) throws IOException {
+        return load(new TreeSource() {
+            @Override
+            public <N> N buildTree(ZipTreeBuilder builder, TreeSink<N> sink) throws IOException {
+                return builder.buildTree(bytes, source, sink);
+            }
+        }, options);
+    }
+
+    private static EffectiveSpork load(TreeSource source, LoadOptions options) throws IOException {
+        return load(source, options, null);
+    }
+
+    private static EffectiveSpork load(TreeSource source, LoadOptions options, SourceFile sourceFile)
+            throws IOException {
+        ZipTreeBuilder builder = new ZipTreeBuilder(null, options);
+        if (options.getStorage() != LoadOptions.Storage.HEAP) {
+            return loadOffHeap(source, builder, options, sourceFile);
+        }
+        ArchiveNode root = source.buildTree(builder, new HeapTreeSink());
+        if (options.isFrozen()) {
+            // Freeze before the final field is assigned, so the whole tree is safely published.
+            root.freeze();
+        }
+        return new EffectiveSpork(root, null, options, sourceFile);
+    }
+
+    private static EffectiveSpork loadOffHeap(TreeSource source, ZipTreeBuilder builder, LoadOptions options,
+                                              SourceFile sourceFile) throws IOException {
+        OffHeapTree tree = new OffHeapTree(options.getStorage() == LoadOptions.Storage.MAPPED_FILE);
+        try {
+            int root = source.buildTree(builder, tree);
+            return new EffectiveSpork(tree.view(root), tree, options, sourceFile);
+        } catch (IOException | RuntimeException e) {
+            tree.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Brings the tree up to date with the file it was loaded from, for archives that are
+     * appended to or rewritten in place. If the file's size and modification time and the
+     * position, size and entry count of its central directory are all unchanged, this
+     * instance is returned. Otherwise a new instance is returned, with the same options:
+     * <ul>
+     *   <li>If entries were only appended, so the central directory read before is an
+     *   unchanged prefix of the current one, only the new records are parsed. They are
+     *   grafted onto a copy of this tree: a heap tree copies just the directories on the
+     *   paths to new entries and shares everything else, an off-heap tree copies its
+     *   records in bulk.</li>
+     *   <li>Otherwise the central directory is read again in full. A heap tree shares every
+     *   nested archive of the outer level whose local header offset, CRC, sizes and
+     *   compression method are unchanged, so only added or changed nested archives are
+     *   parsed; an off-heap tree is loaded afresh.</li>
+     * </ul>
+     * This instance is left as it was and remains usable; an off-heap one still has to be
+     * closed. Unless the trees are frozen, a change made to a shared subtree through one
+     * instance is visible through the other.
+     * @return This instance if the file is unchanged, otherwise the refreshed instance.
+     * @throws IOException If there is an error reading the file.
+     * @throws IllegalStateException If the archive was not loaded from a path.
+     */
+    public EffectiveSpork refresh() throws IOException {
+        if (sourceFile == null) {
+            throw new IllegalStateException("Only archives loaded from a path can be refreshed");
+        }
+        Path zipPath = sourceFile.path;
+        long size = Files.size(zipPath);
+        long lastModifiedMillis = Files.getLastModifiedTime(zipPath).toMillis();
+        try (FileChannel channel = FileChannel.open(zipPath, StandardOpenOption.READ);
+             ArchiveBytes bytes = ArchiveBytes.map(channel)) {
+            CentralDirectoryReader directory = CentralDirectoryReader.open(bytes);
+            if (sourceFile.isUnchanged(size, lastModifiedMillis, directory)) {
+                return this;
+            }
+            SourceFile current = SourceFile.of(zipPath, size, lastModifiedMillis, directory);
+            if (sourceFile.isPrefixOf(directory)) {
+                return appendNewEntries(bytes, current);
+            }
+            if (offHeapTree != null) {
+                return load(pathSource(bytes, zipPath), options, current);
+            }
+            return reloadSharingNestedArchives(bytes, current);
+        }
+    }
+
+    private EffectiveSpork appendNewEntries(ArchiveBytes bytes, SourceFile current) throws IOException {
+        ZipTreeBuilder builder = new ZipTreeBuilder(null, options);
+        String source = current.path.toString();
+        if (offHeapTree == null) {
+            ArchiveNode root = builder.appendToTree(bytes, source, new HeapTreeSink(), rootNode,
+                    sourceFile.entryCount, sourceFile.directorySize);
+            if (options.isFrozen()) {
+                root.freeze();
+            }
+            return new EffectiveSpork(root, null, options, current);
+        }
+        OffHeapTree tree = new OffHeapTree(offHeapTree, options.getStorage() == LoadOptions.Storage.MAPPED_FILE);
+        try {
+            int root = builder.appendToTree(bytes, source, tree, ((OffHeapArchiveNode) rootNode).getId(),
+                    sourceFile.entryCount, sourceFile.directorySize);
+            return new EffectiveSpork(tree.view(root), tree, options, current);
+        } catch (IOException | RuntimeException e) {
+            tree.close();
+            throw e;
+        }
+    }
+
+    private EffectiveSpork reloadSharingNestedArchives(ArchiveBytes bytes, SourceFile current) throws IOException {
+        ArchiveNode root = new ZipTreeBuilder(null, options)
+                .buildTree(bytes, current.path.toString(), new HeapTreeSink(), this::previousNestedArchive);
+        if (options.isFrozen()) {
+            root.freeze();
+        }
+        return new EffectiveSpork(root, null, options, current);
+    }
+
+    /**
+     * @return The root of the nested archive this tree holds for the entry, if the entry is
+     * at the same offset with the same content; otherwise null.
+     */
+    private ArchiveNode previousNestedArchive(ZipEntry entry, long localHeaderOffset) {
+        EntryPath path = new EntryPath().reset(entry.getName());
+        ArchiveNode node = rootNode;
+        while (node != null && path.hasNextDirectory()) {
+            node = node.getChildren().get(path.nextDirectory());
+        }
+        if (node != null) {
+            node = node.getChildren().get(path.fileName());
+        }
+        if (node == null) {
+            return null;
+        }
+        ZipEntry previous = node.getEntry();
+        boolean unchanged = previous != null
+                && node.getLocalHeaderOffset() == localHeaderOffset
+                && previous.getCrc() == entry.getCrc()
+                && previous.getCompressedSize() == entry.getCompressedSize()
+                && previous.getSize() == entry.getSize()
+                && previous.getMethod() == entry.getMethod();
+        return unchanged ? node.getNestedArchiveRoot() : null;
     }
 
     /**
@@ -90,16 +385,30 @@ public class EffectiveSpork {
     /**
      * Processes the loaded archive tree with one or more visitors.
      * This is the primary method for running custom analysis.
+     * If the instance was loaded with a metrics listener, the pass is reported to it.
      * @param visitors A list of visitors to run over the tree.
      */
     public void process(TreeVisitor<?>... visitors) {
-        traverse(this.rootNode, "", Arrays.asList(visitors));
+        List<TreeVisitor<?>> visitorList = Arrays.asList(visitors);
+        if (metricsListener == null) {
+            traverse(this.rootNode, "", visitorList);
+            return;
+        }
+        metricsListener.visitorPassStarted(visitorList);
+        long start = System.nanoTime();
+        long nodesVisited = 0;
+        try {
+            nodesVisited = traverse(this.rootNode, "", visitorList);
+        } finally {
+            metricsListener.visitorPassFinished(visitorList, nodesVisited, System.nanoTime() - start);
+        }
     }
 
     /**
      * The recursive engine that walks the tree and applies visitors.
+     * @return The number of nodes visited.
      */
-    private void traverse(ArchiveNode currentNode, String currentPath, List<TreeVisitor<?>> visitors) {
+    private long traverse(ArchiveNode currentNode, String currentPath, List<TreeVisitor<?>> visitors) {
         String nodePath = currentPath.isEmpty() ?
                 currentNode.getName() :
                 currentPath + "/" + currentNode.getName();
@@ -109,17 +418,20 @@ public class EffectiveSpork {
             visitor.visit(currentNode, nodePath);
         }
 
+        long nodesVisited = 1;
+
         // Recurse into the nested archive's children
         if (currentNode.getNestedArchiveRoot() != null) {
             for (ArchiveNode child : currentNode.getNestedArchiveRoot().getChildren().values()) {
-                traverse(child, nodePath, visitors);
+                nodesVisited += traverse(child, nodePath, visitors);
             }
         }
 
         // Recurse into the current node's children
         for (ArchiveNode child : currentNode.getChildren().values()) {
-            traverse(child, nodePath, visitors);
+            nodesVisited += traverse(child, nodePath, visitors);
         }
+        return nodesVisited;
     }
 
     /**
@@ -135,4 +447,124 @@ public class EffectiveSpork {
         // ...but the user doesn't need to know that.
         return visitor.getResult();
     }
-}
\ No newline at end of file
+
+    /**
+     * Reports compression ratios per extension and per directory, a size histogram and the
+     * largest files, in memory bounded by the visitor's defaults. Reports of several
+     * archives can be combined with {@link CompressionReport#merge}.
+     * @return The report over every file in the archive, nested archives included.
+     */
+    public CompressionReport analyzeCompression() {
+        CompressionAnalyticsVisitor visitor = new CompressionAnalyticsVisitor();
+        this.process(visitor);
+        return visitor.getResult();
+    }
+
+    /**
+     * Releases an off-heap tree. Queries already running on other threads finish safely;
+     * the instance, and every node obtained from it, throws IllegalStateException afterwards.
+     * The native memory is freed once the last running query lets go of it.
+     * @throws IOException If the backing file of a memory-mapped tree cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (offHeapTree != null) {
+            offHeapTree.close();
+        }
+    }
+
+    /**
+     * Compares this archive, as the older version, with another one, streaming every added,
+     * removed or changed node to the listener. Both trees are walked in lockstep; files are
+     * compared by size and CRC, and whole directories and nested archives are skipped when
+     * their aggregate fingerprints match. The fingerprints are recorded while an archive is
+     * loaded, so a diff costs nothing up front; they describe the tree as loaded, and
+     * changes made by hand to a loaded tree's child maps are not seen.
+     * @param other    The newer version of the archive.
+     * @param listener Receives the differences as they are found.
+     */
+    public void diff(EffectiveSpork other, DiffListener listener) {
+        new TreeDiffer(listener).diffRoots(this.rootNode, other.rootNode);
+    }
+
+    /**
+     * Where a load reads its archive from; it parses into whichever sink the storage option calls for.
+     */
+    private interface TreeSource {
+        <N> N buildTree(ZipTreeBuilder builder, TreeSink<N> sink) throws IOException;
+    }
+
+    /**
+     * What a file and its central directory looked like when it was loaded, to tell whether
+     * a refresh has anything to do and whether entries were only appended since.
+     */
+    private static final class SourceFile {
+        final Path path;
+        final long size;
+        final long lastModifiedMillis;
+        /** How many entries the central directory held, or -1 if it had none to be found. */
+        final long entryCount;
+        final long directoryStart;
+        final long directorySize;
+        final long base;
+        final long directoryChecksum;
+
+        private SourceFile(Path path, long size, long lastModifiedMillis, long entryCount, long directoryStart,
+                           long directorySize, long base, long directoryChecksum) {
+            this.path = path;
+            this.size = size;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.entryCount = entryCount;
+            this.directoryStart = directoryStart;
+            this.directorySize = directorySize;
+            this.base = base;
+            this.directoryChecksum = directoryChecksum;
+        }
+
+        /**
+         * @param directory The file's central directory, or null if it has none; it is
+         *                  checksummed, since appending entries overwrites it in place.
+         */
+        static SourceFile of(Path path, long size, long lastModifiedMillis, CentralDirectoryReader directory)
+                throws IOException {
+            if (directory == null) {
+                return new SourceFile(path, size, lastModifiedMillis, -1, -1, -1, -1, 0);
+            }
+            return new SourceFile(path, size, lastModifiedMillis, directory.getTotalEntries(),
+                    directory.getDirectoryStart(), directory.getDirectorySize(), directory.getBase(),
+                    directory.checksum(directory.getDirectorySize()));
+        }
+
+        /**
+         * @return true if the file still has the size, time and central directory it had;
+         * the directory is checksummed too, as it holds every entry's CRC and a rewrite
+         * within the timestamp's resolution can keep everything else.
+         */
+        boolean isUnchanged(long currentSize, long currentLastModifiedMillis, CentralDirectoryReader directory)
+                throws IOException {
+            if (currentSize != size || currentLastModifiedMillis != lastModifiedMillis) {
+                return false;
+            }
+            if (directory == null) {
+                return entryCount == -1;
+            }
+            return directory.getTotalEntries() == entryCount
+                    && directory.getDirectoryStart() == directoryStart
+                    && directory.getDirectorySize() == directorySize
+                    && directory.checksum(directorySize) == directoryChecksum;
+        }
+
+        /**
+         * @return true if the records this file's central directory held, byte for byte,
+         * start the given one, which holds more after them.
+         */
+        boolean isPrefixOf(CentralDirectoryReader directory) throws IOException {
+            return entryCount >= 0 && directory != null
+                    && directory.getBase() == base
+                    && directory.getTotalEntries() > entryCount
+                    && directory.getDirectorySize() > directorySize
+                    && directory.getDirectoryStart() >= directoryStart
+                    && directory.checksum(directorySize) == directoryChecksum;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package lk.org.inception;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+
+/**
+ * Decides which entries make it into the tree while an archive is being parsed.
+ * <p>
+ * Paths are matched against glob patterns relative to the outer archive, with nested
+ * archives written as directories, e.g. {@code lib/app.zip/META-INF/MANIFEST.MF}.
+ * {@code *} and {@code ?} stay within one path segment, {@code **} spans segments, and a
+ * leading {@code **}{@code /} also matches at the root. Directory paths have no trailing slash.
+ * <p>
+ * An entry is kept if it matches at least one include pattern (or there are none), no
+ * exclude pattern, and the size and compression method constraints. An exclude ending in
+ * {@code /**} drops the directory entry it names as well as everything below it, so no
+ * empty directory is left behind; a nested archive it names is kept, but not parsed.
+ * Parent directories are only created for kept entries, and a nested archive is only
+ * parsed when its path leaves room for a match inside it. Instances are immutable; every
+ * {@code with...} method returns a modified copy.
+ */
+public final class EntryFilter {
+
+    private static final EntryFilter ALL = new EntryFilter(Collections.<Pattern>emptyList(),
+            Collections.<Pattern>emptyList(), Collections.<Pattern>emptyList(), 0, Long.MAX_VALUE, null);
+
+    private final List<Pattern> includes;
+    private final List<Pattern> excludes;
+    /** Directories whose whole subtree is excluded, from exclude patterns ending in "/**". */
+    private final List<Pattern> excludedTrees;
+    private final long minSize;
+    private final long maxSize;
+    private final int[] methods;
+
+    private EntryFilter(List<Pattern> includes, List<Pattern> excludes, List<Pattern> excludedTrees,
+                        long minSize, long maxSize, int[] methods) {
+        this.includes = includes;
+        this.excludes = excludes;
+        this.excludedTrees = excludedTrees;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.methods = methods;
+    }
+
+    /**
+     * @return A filter that keeps every entry.
+     */
+    public static EntryFilter all() {
+        return ALL;
+    }
+
+    /**
+     * @param globs Patterns of which at least one must match a kept entry.
+     * @return A copy of this filter with the patterns added to its includes.
+     */
+    public EntryFilter withIncludes(String... globs) {
+        return new EntryFilter(concat(includes, globs), excludes, excludedTrees, minSize, maxSize, methods);
+    }
+
+    /**
+     * @param globs Patterns that no kept entry may match.
+     * @return A copy of this filter with the patterns added to its excludes.
+     */
+    public EntryFilter withExcludes(String... globs) {
+        List<String> trees = new ArrayList<>();
+        for (String glob : globs) {
+            if (glob.endsWith("/**")) {
+                trees.add(glob.substring(0, glob.length() - 3));
+            }
+        }
+        return new EntryFilter(includes, concat(excludes, globs),
+                concat(excludedTrees, trees.toArray(new String[0])), minSize, maxSize, methods);
+    }
+
+    /**
+     * Restricts files to an uncompressed size range. Directories are not size-checked.
+     * @param minSize The smallest size to keep, in bytes (inclusive).
+     * @param maxSize The largest size to keep, in bytes (inclusive).
+     * @return A copy of this filter with the size range.
+     */
+    public EntryFilter withSizeBetween(long minSize, long maxSize) {
+        if (minSize < 0 || maxSize < minSize) {
+            throw new IllegalArgumentException("Invalid size range: " + minSize + ".." + maxSize);
+        }
+        return new EntryFilter(includes, excludes, excludedTrees, minSize, maxSize, methods);
+    }
+
+    /**
+     * @param methods The compression methods to keep, e.g. {@link ZipEntry#STORED}.
+     * @return A copy of this filter that keeps only entries stored with one of the methods.
+     */
+    public EntryFilter withMethods(int... methods) {
+        return new EntryFilter(includes, excludes, excludedTrees, minSize, maxSize, methods.clone());
+    }
+
+    /**
+     * @return true if this filter keeps every entry, so the builder can skip it entirely.
+     */
+    public boolean acceptsAll() {
+        return includes.isEmpty() && excludes.isEmpty() && minSize == 0 && maxSize == Long.MAX_VALUE && methods == null;
+    }
+
+    /**
+     * @param path  The entry path relative to the outer archive, without a trailing slash.
+     * @param entry The entry, with its sizes filled in.
+     * @return true if a node should be created for the entry.
+     */
+    public boolean accept(String path, ZipEntry entry) {
+        if (!entry.isDirectory()) {
+            long size = entry.getSize();
+            if (size != -1 && (size < minSize || size > maxSize)) {
+                return false;
+            }
+        }
+        if (methods != null && !contains(methods, entry.getMethod())) {
+            return false;
+        }
+        if (entry.isDirectory() && matchesAny(excludedTrees, path, false)) {
+            return false;
+        }
+        return matchesAny(includes, path, true) && !matchesAny(excludes, path, false);
+    }
+
+    /**
+     * Tells whether any entry inside the nested archive at the given path could be accepted.
+     * @param archivePath The path of the nested archive entry.
+     * @return false if the archive does not need to be parsed at all.
+     */
+    public boolean mayContainMatches(String archivePath) {
+        String prefix = archivePath + "/";
+        for (Pattern excludedTree : excludedTrees) {
+            for (int slash = prefix.indexOf('/'); slash >= 0; slash = prefix.indexOf('/', slash + 1)) {
+                if (excludedTree.matcher(prefix.substring(0, slash)).matches()) {
+                    return false;
+                }
+            }
+        }
+        if (includes.isEmpty()) {
+            return true;
+        }
+        for (Pattern include : includes) {
+            Matcher matcher = include.matcher(prefix);
+            // hitEnd() means a longer path starting with the prefix could still match.
+            if (matcher.matches() || matcher.hitEnd()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesAny(List<Pattern> patterns, String path, boolean valueIfEmpty) {
+        if (patterns.isEmpty()) {
+            return valueIfEmpty;
+        }
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int candidate : values) {
+            if (candidate == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Pattern> concat(List<Pattern> patterns, String[] globs) {
+        List<Pattern> result = new ArrayList<>(patterns);
+        for (String glob : globs) {
+            result.add(Pattern.compile(toRegex(glob)));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Translates a glob into a regular expression, segment-aware as described above.
+     */
+    static String toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int i = 0;
+        while (i < glob.length()) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                boolean doubleStar = i + 1 < glob.length() && glob.charAt(i + 1) == '*';
+                if (doubleStar && i + 2 < glob.length() && glob.charAt(i + 2) == '/'
+                        && (i == 0 || glob.charAt(i - 1) == '/')) {
+                    regex.append("(?:.*/)?");
+                    i += 3;
+                } else if (doubleStar) {
+                    regex.append(".*");
+                    i += 2;
+                } else {
+                    regex.append("[^/]*");
+                    i++;
+                }
+            } else if (c == '?') {
+                regex.append("[^/]");
+                i++;
+            } else {
+                int next = i;
+                while (next < glob.length() && glob.charAt(next) != '*' && glob.charAt(next) != '?') {
+                    next++;
+                }
+                regex.append(Pattern.quote(glob.substring(i, next)));
+                i = next;
+            }
+        }
+        return regex.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "EntryFilter{includes=" + includes + ", excludes=" + excludes + ", size=" + minSize + ".." + maxSize
+                + ", methods=" + (methods == null ? "any" : Arrays.toString(methods)) + "}";
+    }
+}
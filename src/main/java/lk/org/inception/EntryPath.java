@@ -0,0 +1,61 @@
+package lk.org.inception;
+
+/**
+ * Walks the elements of an entry name the way {@link java.nio.file.Paths#get} splits a Unix
+ * path, skipping empty elements, but without building a {@code Path} and a {@code String}
+ * per element just to throw them away. One instance is reset for every entry.
+ * <p>
+ * Not thread-safe.
+ */
+final class EntryPath {
+
+    private String name;
+    private int start;
+    private int end;
+
+    /**
+     * Starts walking {@code name}.
+     * @return This instance.
+     */
+    EntryPath reset(String name) {
+        this.name = name;
+        end = name.length();
+        while (end > 0 && name.charAt(end - 1) == '/') {
+            end--;
+        }
+        start = Math.min(skipSlashes(0), end);
+        return this;
+    }
+
+    /**
+     * @return true if a directory comes before the last element.
+     */
+    boolean hasNextDirectory() {
+        int slash = name.indexOf('/', start);
+        return slash >= 0 && slash < end;
+    }
+
+    /**
+     * @return The next directory element; only valid while {@link #hasNextDirectory()}.
+     */
+    String nextDirectory() {
+        int slash = name.indexOf('/', start);
+        String directory = name.substring(start, slash);
+        start = skipSlashes(slash + 1);
+        return directory;
+    }
+
+    /**
+     * @return The last element, once every directory has been taken.
+     */
+    String fileName() {
+        return name.substring(start, end);
+    }
+
+    private int skipSlashes(int from) {
+        while (from < end && name.charAt(from) == '/') {
+            from++;
+        }
+        return from;
+    }
+}
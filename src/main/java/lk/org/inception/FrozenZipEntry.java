@@ -0,0 +1,89 @@
+package lk.org.inception;
+
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.zip.ZipEntry;
+
+/**
+ * The read-only copy of a {@link ZipEntry} a frozen node hands out. It is made once, when
+ * the node is frozen, so reading it costs nothing; every setter throws, and the extra field
+ * is returned as a copy.
+ */
+final class FrozenZipEntry extends ZipEntry {
+
+    private FrozenZipEntry(ZipEntry entry) {
+        super(entry);
+    }
+
+    /**
+     * @return A read-only copy of {@code entry}, or the entry itself if it already is one.
+     */
+    static ZipEntry of(ZipEntry entry) {
+        return entry == null || entry instanceof FrozenZipEntry ? entry : new FrozenZipEntry(entry);
+    }
+
+    @Override
+    public byte[] getExtra() {
+        byte[] extra = super.getExtra();
+        return extra == null ? null : extra.clone();
+    }
+
+    @Override
+    public void setTime(long time) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setTimeLocal(LocalDateTime time) {
+        throw readOnly();
+    }
+
+    @Override
+    public ZipEntry setLastModifiedTime(FileTime time) {
+        throw readOnly();
+    }
+
+    @Override
+    public ZipEntry setLastAccessTime(FileTime time) {
+        throw readOnly();
+    }
+
+    @Override
+    public ZipEntry setCreationTime(FileTime time) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setSize(long size) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCompressedSize(long csize) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCrc(long crc) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setMethod(int method) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setExtra(byte[] extra) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setComment(String comment) {
+        throw readOnly();
+    }
+
+    private IllegalStateException readOnly() {
+        return new IllegalStateException("Cannot modify the entry of a frozen node: " + getName());
+    }
+}
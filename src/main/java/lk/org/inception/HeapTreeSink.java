@@ -0,0 +1,108 @@
+package lk.org.inception;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+
+/**
+ * Builds the regular on-heap tree of {@link ArchiveNode}s.
+ * <p>
+ * A reopened archive is grown copy-on-write: every directory on the path to a new entry
+ * is copied before it is changed, and everything else stays shared with the earlier tree.
+ */
+final class HeapTreeSink implements TreeSink<ArchiveNode> {
+
+    private final EntryPath path = new EntryPath();
+    private long nodesCreated;
+    /** The nodes this sink created or copied since an archive was reopened; null until then. */
+    private Set<ArchiveNode> owned;
+
+    @Override
+    public ArchiveNode newArchiveRoot() {
+        return own(new ArchiveNode("/", null));
+    }
+
+    @Override
+    public void place(ArchiveNode root, ZipEntry entry, long localHeaderOffset, ArchiveNode nestedRoot) {
+        EntryPath path = this.path.reset(entry.getName());
+        ArchiveNode currentNode = root;
+
+        while (path.hasNextDirectory()) {
+            currentNode = directory(currentNode, path.nextDirectory());
+        }
+
+        String finalName = path.fileName();
+        Map<String, ArchiveNode> siblings = currentNode.getChildren();
+        ArchiveNode newNode = own(new ArchiveNode(finalName, entry, localHeaderOffset));
+        ArchiveNode existing = siblings.get(finalName);
+        if (entry.isDirectory() && existing != null && isDirectory(existing)) {
+            // Keeps the children and the place of the directory it gives an entry to.
+            newNode.getChildren().putAll(existing.getChildren());
+        } else if (existing != null) {
+            siblings.remove(finalName);
+        }
+        siblings.put(finalName, newNode);
+
+        if (nestedRoot != null) {
+            newNode.setNestedArchiveRoot(nestedRoot);
+        }
+    }
+
+    /**
+     * @return The child directory of that name, created if missing or if a file holds the
+     * name, or copied if it is still shared with the tree of an earlier load.
+     */
+    private ArchiveNode directory(ArchiveNode parent, String name) {
+        ArchiveNode directory = parent.getChildren().get(name);
+        if (directory == null || !isDirectory(directory)) {
+            parent.getChildren().remove(name);
+            directory = own(new ArchiveNode(name, null));
+            parent.getChildren().put(name, directory);
+        } else if (owned != null && !owned.contains(directory)) {
+            directory = own(new ArchiveNode(directory));
+            parent.getChildren().put(name, directory);
+        }
+        return directory;
+    }
+
+    /**
+     * @return true for implicit directories and directory entries, whose paths entries
+     * below them extend.
+     */
+    private static boolean isDirectory(ArchiveNode node) {
+        return node.getEntry() == null || node.getEntry().isDirectory();
+    }
+
+    private ArchiveNode own(ArchiveNode node) {
+        nodesCreated++;
+        if (owned != null) {
+            owned.add(node);
+        }
+        return node;
+    }
+
+    @Override
+    public boolean isEmpty(ArchiveNode root) {
+        return root.getChildren().isEmpty();
+    }
+
+    @Override
+    public void finishArchive(ArchiveNode root) {
+        TreeDiffer.recordFingerprints(root, owned);
+    }
+
+    @Override
+    public ArchiveNode reopenArchive(ArchiveNode root) {
+        if (owned == null) {
+            owned = Collections.newSetFromMap(new IdentityHashMap<ArchiveNode, Boolean>());
+        }
+        return own(new ArchiveNode(root));
+    }
+
+    @Override
+    public long nodesCreated() {
+        return nodesCreated;
+    }
+}
@@ -0,0 +1,116 @@
+package lk.org.inception;
+
+import lk.org.inception.metrics.MetricsListener;
+
+import java.nio.file.Path;
+
+/**
+ * Options that control how {@link EffectiveSpork#load(Path, LoadOptions)} builds the tree.
+ * Instances are immutable; every {@code with...} method returns a modified copy.
+ */
+public final class LoadOptions {
+
+    /**
+     * Where the nodes of a loaded tree are kept.
+     */
+    public enum Storage {
+        /** Regular {@link ArchiveNode} objects on the Java heap. */
+        HEAP,
+        /** Fixed-size records in direct memory, outside the heap. The tree is read-only. */
+        OFF_HEAP,
+        /** Like {@link #OFF_HEAP}, but in a memory-mapped temporary file the OS can page out. */
+        MAPPED_FILE
+    }
+
+    private static final LoadOptions DEFAULTS = new LoadOptions(false, EntryFilter.all(), Storage.HEAP, null);
+
+    private final boolean frozen;
+    private final EntryFilter filter;
+    private final Storage storage;
+    private final MetricsListener metricsListener;
+
+    private LoadOptions(boolean frozen, EntryFilter filter, Storage storage, MetricsListener metricsListener) {
+        this.frozen = frozen;
+        this.filter = filter;
+        this.storage = storage;
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * @return The options used by {@link EffectiveSpork#load(Path)}.
+     */
+    public static LoadOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @return true if the loaded tree will be frozen (see {@link ArchiveNode#freeze()}).
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * @return The filter deciding which entries get a node.
+     */
+    public EntryFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return Where the nodes of the loaded tree are kept.
+     */
+    public Storage getStorage() {
+        return storage;
+    }
+
+    /**
+     * @return The listener told about the load and later visitor passes, or null if there is none.
+     */
+    public MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * @param frozen Whether to freeze the tree before handing it out, so one loaded
+     *               instance can be shared by any number of threads.
+     * @return A copy of these options with the given setting.
+     */
+    public LoadOptions withFrozen(boolean frozen) {
+        return new LoadOptions(frozen, filter, storage, metricsListener);
+    }
+
+    /**
+     * @param filter The filter applied while parsing; rejected entries never get a node
+     *               and nested archives that cannot hold a match are not parsed.
+     * @return A copy of these options with the given filter.
+     */
+    public LoadOptions withFilter(EntryFilter filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("filter must not be null");
+        }
+        return new LoadOptions(frozen, filter, storage, metricsListener);
+    }
+
+    /**
+     * @param storage Where to keep the nodes. Off-heap trees are always read-only and
+     *                hold native memory until {@link EffectiveSpork#close()} is called.
+     * @return A copy of these options with the given storage.
+     */
+    public LoadOptions withStorage(Storage storage) {
+        if (storage == null) {
+            throw new IllegalArgumentException("storage must not be null");
+        }
+        return new LoadOptions(frozen, filter, storage, metricsListener);
+    }
+
+    /**
+     * @param metricsListener The listener to report parse and traversal metrics to, or null
+     *                        to turn instrumentation off. Listeners are called on the loading
+     *                        or visiting thread and should return quickly.
+     * @return A copy of these options with the given listener.
+     */
+    public LoadOptions withMetricsListener(MetricsListener metricsListener) {
+        return new LoadOptions(frozen, filter, storage, metricsListener);
+    }
+}
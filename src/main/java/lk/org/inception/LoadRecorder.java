@@ -0,0 +1,71 @@
+package lk.org.inception;
+
+import lk.org.inception.metrics.ArchiveMetrics;
+import lk.org.inception.metrics.LoadMetrics;
+import lk.org.inception.metrics.MetricsListener;
+
+import java.util.Arrays;
+
+/**
+ * Collects the metrics of a single load and forwards them to a {@link MetricsListener}.
+ * Only created when a listener is configured, so uninstrumented loads never touch it.
+ */
+final class LoadRecorder {
+
+    private final MetricsListener listener;
+    private final String source;
+    private final long startNanos;
+    private long bytesRead;
+    private long bytesInflated;
+    private long entries;
+    private int maxDepth;
+    /** Exclusive time per nesting level. */
+    private long[] nanosByDepth = new long[4];
+    /** Time spent in the archives nested directly inside the open archive at each level. */
+    private long[] childNanos = new long[4];
+
+    LoadRecorder(MetricsListener listener, String source) {
+        this.listener = listener;
+        this.source = source;
+        listener.loadStarted(source);
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * @return The start time to hand back to {@link #archiveFinished}.
+     */
+    long archiveStarted(String path, int depth) {
+        if (depth >= nanosByDepth.length) {
+            nanosByDepth = Arrays.copyOf(nanosByDepth, depth * 2);
+            childNanos = Arrays.copyOf(childNanos, depth * 2);
+        }
+        maxDepth = Math.max(maxDepth, depth);
+        childNanos[depth] = 0;
+        listener.archiveStarted(path, depth);
+        return System.nanoTime();
+    }
+
+    /**
+     * @param entries       The entries read at this level.
+     * @param bytesRead     The bytes this level read from its own source.
+     * @param bytesInflated The bytes this level inflated.
+     */
+    void archiveFinished(String path, int depth, long startedAt, int entries, long bytesRead, long bytesInflated) {
+        long nanos = System.nanoTime() - startedAt;
+        nanosByDepth[depth] += nanos - childNanos[depth];
+        if (depth > 0) {
+            childNanos[depth - 1] += nanos;
+        } else {
+            this.bytesRead = bytesRead;
+        }
+        this.bytesInflated += bytesInflated;
+        this.entries += entries;
+        listener.archiveFinished(new ArchiveMetrics(path, depth, entries, bytesRead, bytesInflated, nanos));
+    }
+
+    void loadFinished(long nodesCreated) {
+        long nanos = System.nanoTime() - startNanos;
+        listener.loadFinished(new LoadMetrics(source, bytesRead, bytesInflated, entries, nodesCreated,
+                maxDepth, Arrays.copyOf(nanosByDepth, maxDepth + 1), nanos));
+    }
+}
@@ -0,0 +1,250 @@
+package lk.org.inception;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+
+/**
+ * A short-lived, read-only view of one node of an {@link OffHeapTree}. Views are created
+ * as the tree is walked and hold nothing but the node id, so they die young and cheaply.
+ * {@link #getEntry()} rebuilds a fresh ZipEntry on every call. Every read of the tree is
+ * bracketed by {@link OffHeapTree#enter()} and {@link OffHeapTree#leave(int)}, so closing
+ * the tree never frees memory a view is reading.
+ */
+final class OffHeapArchiveNode extends ArchiveNode {
+
+    private final OffHeapTree tree;
+    private final int id;
+    private String name;
+
+    OffHeapArchiveNode(OffHeapTree tree, int id) {
+        this.tree = tree;
+        this.id = id;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        if (name == null) {
+            int stripe = tree.enter();
+            try {
+                name = tree.name(id);
+            } finally {
+                tree.leave(stripe);
+            }
+        }
+        return name;
+    }
+
+    @Override
+    public ZipEntry getEntry() {
+        int stripe = tree.enter();
+        try {
+            return tree.entry(id);
+        } finally {
+            tree.leave(stripe);
+        }
+    }
+
+    @Override
+    public long getLocalHeaderOffset() {
+        int stripe = tree.enter();
+        try {
+            return tree.localHeaderOffset(id);
+        } finally {
+            tree.leave(stripe);
+        }
+    }
+
+    @Override
+    long getFingerprint() {
+        int stripe = tree.enter();
+        try {
+            return tree.fingerprint(id);
+        } finally {
+            tree.leave(stripe);
+        }
+    }
+
+    @Override
+    public Map<String, ArchiveNode> getChildren() {
+        return new ChildMap();
+    }
+
+    @Override
+    public boolean isDirectory() {
+        int stripe = tree.enter();
+        try {
+            return tree.isDirectoryEntry(id) || tree.firstChild(id) != -1;
+        } finally {
+            tree.leave(stripe);
+        }
+    }
+
+    @Override
+    public ArchiveNode getNestedArchiveRoot() {
+        int nestedRoot;
+        int stripe = tree.enter();
+        try {
+            nestedRoot = tree.nestedRoot(id);
+        } finally {
+            tree.leave(stripe);
+        }
+        return nestedRoot == -1 ? null : new OffHeapArchiveNode(tree, nestedRoot);
+    }
+
+    @Override
+    public void setNestedArchiveRoot(ArchiveNode nestedArchiveRoot) {
+        throw new IllegalStateException("Cannot modify off-heap node: " + getName());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OffHeapArchiveNode)) {
+            return false;
+        }
+        OffHeapArchiveNode other = (OffHeapArchiveNode) o;
+        return tree == other.tree && id == other.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(tree) * 31 + id;
+    }
+
+    /**
+     * The children of this node, read straight from the sibling list. Lookups by name go
+     * through the node's child table and compare encoded names, so nothing is decoded.
+     */
+    private final class ChildMap extends AbstractMap<String, ArchiveNode> {
+
+        @Override
+        public boolean isEmpty() {
+            int stripe = tree.enter();
+            try {
+                return tree.firstChild(id) == -1;
+            } finally {
+                tree.leave(stripe);
+            }
+        }
+
+        @Override
+        public int size() {
+            int stripe = tree.enter();
+            try {
+                return tree.childCount(id);
+            } finally {
+                tree.leave(stripe);
+            }
+        }
+
+        @Override
+        public ArchiveNode get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            byte[] name = ((String) key).getBytes(StandardCharsets.UTF_8);
+            int child;
+            int stripe = tree.enter();
+            try {
+                child = tree.child(id, name);
+            } finally {
+                tree.leave(stripe);
+            }
+            return child == -1 ? null : new OffHeapArchiveNode(tree, child);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Collection<ArchiveNode> values() {
+            return new AbstractCollection<ArchiveNode>() {
+                @Override
+                public Iterator<ArchiveNode> iterator() {
+                    return new ChildIterator();
+                }
+
+                @Override
+                public int size() {
+                    return ChildMap.this.size();
+                }
+            };
+        }
+
+        @Override
+        public Set<Map.Entry<String, ArchiveNode>> entrySet() {
+            return new AbstractSet<Map.Entry<String, ArchiveNode>>() {
+                @Override
+                public Iterator<Map.Entry<String, ArchiveNode>> iterator() {
+                    ChildIterator children = new ChildIterator();
+                    return new Iterator<Map.Entry<String, ArchiveNode>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return children.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<String, ArchiveNode> next() {
+                            ArchiveNode child = children.next();
+                            return new SimpleImmutableEntry<>(child.getName(), child);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return ChildMap.this.size();
+                }
+            };
+        }
+    }
+
+    private final class ChildIterator implements Iterator<ArchiveNode> {
+        private int next;
+
+        ChildIterator() {
+            int stripe = tree.enter();
+            try {
+                next = tree.firstChild(id);
+            } finally {
+                tree.leave(stripe);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != -1;
+        }
+
+        @Override
+        public ArchiveNode next() {
+            if (next == -1) {
+                throw new NoSuchElementException();
+            }
+            ArchiveNode child = new OffHeapArchiveNode(tree, next);
+            int stripe = tree.enter();
+            try {
+                next = tree.nextSibling(next);
+            } finally {
+                tree.leave(stripe);
+            }
+            return child;
+        }
+    }
+}
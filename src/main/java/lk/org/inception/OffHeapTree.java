@@ -0,0 +1,846 @@
+package lk.org.inception;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.ZipEntry;
+
+/**
+ * An archive tree whose node records and names live outside the Java heap, in direct
+ * buffers or in a memory-mapped temporary file. The garbage collector only ever sees a
+ * handful of buffer objects, however many entries the archive has.
+ * <p>
+ * Each node is a fixed 96-byte record addressed by an int id; siblings form a linked list
+ * in entry order. Names are stored once, as UTF-8, in a separate pool. When an archive
+ * level is finished, every directory with more than a few children gets an open-addressing
+ * hash table of its child ids, keyed by name, so looking a child up by name takes constant
+ * time however wide the directory is, and every directory gets the aggregate fingerprint
+ * {@link TreeDiffer} compares. A tree can be copied in bulk and have entries appended to
+ * the copy's outer level, which then updates only the directories that grew. The tree is read
+ * through {@link OffHeapArchiveNode} views, which are created on demand and hold no data
+ * of their own. Once built the tree is read-only and may be queried from many threads.
+ * <p>
+ * Every read through a view happens between {@link #enter()} and {@link #leave(int)}, which
+ * count the readers in padded per-thread stripes. {@link #close()} stops new reads, waits
+ * for the ones in progress to leave, and then frees every direct or mapped buffer at once,
+ * so native memory never waits for a garbage collection and is never freed under a
+ * reader. Any read started after close fails with an IllegalStateException. A backing
+ * file is opened with {@link StandardOpenOption#DELETE_ON_CLOSE}, so it never outlives
+ * the process.
+ */
+final class OffHeapTree implements TreeSink<Integer>, AutoCloseable {
+
+    private static final int NONE = -1;
+
+    private static final int RECORD_SIZE = 96;
+    private static final int RECORD_SHIFT = 16;
+    private static final int RECORDS_PER_CHUNK = 1 << RECORD_SHIFT;
+    private static final int RECORD_MASK = RECORDS_PER_CHUNK - 1;
+    private static final int NAME_CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int TABLE_SHIFT = 20;
+    private static final int TABLE_INTS_PER_CHUNK = 1 << TABLE_SHIFT;
+    private static final int TABLE_MASK = TABLE_INTS_PER_CHUNK - 1;
+    /** Directories with at most this many children are scanned instead of indexed. */
+    private static final int INDEX_THRESHOLD = 8;
+    private static final int FNV_OFFSET = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+    /** Reader stripes, a power of two; each sits on its own 64-byte cache line. */
+    private static final int READER_STRIPES = 16;
+    private static final int READER_PADDING = 8;
+
+    // Record layout, byte offsets within a record.
+    private static final int PARENT = 0;
+    private static final int FIRST_CHILD = 4;
+    private static final int NEXT_SIBLING = 8;
+    private static final int NESTED_ROOT = 12;
+    private static final int NAME_OFFSET = 16;
+    private static final int NAME_LENGTH = 24;
+    private static final int FLAGS = 28;
+    private static final int SIZE = 32;
+    private static final int COMPRESSED_SIZE = 40;
+    private static final int TIME = 48;
+    private static final int CRC = 56;
+    private static final int LAST_CHILD = 60;
+    private static final int LOCAL_HEADER_OFFSET = 64;
+    private static final int CHILD_COUNT = 72;
+    private static final int CHILD_TABLE_CAPACITY = 76;
+    private static final int CHILD_TABLE = 80;
+    private static final int FINGERPRINT = 88;
+
+    private static final int FLAG_HAS_ENTRY = 1;
+    private static final int FLAG_DIRECTORY_ENTRY = 2;
+    private static final int FLAG_ARCHIVE_ROOT = 4;
+    private static final int FLAG_HAS_CRC = 8;
+    /** Set on a node once a directory is created below it; only read while building. */
+    private static final int FLAG_DIRECTORY_CHILDREN = 16;
+    private static final int METHOD_SHIFT = 8;
+
+    // Freed and swapped for empty lists on close; volatile so a reader that sees an empty list also sees closed.
+    private volatile List<ByteBuffer> records = new ArrayList<>();
+    private volatile List<ByteBuffer> names = new ArrayList<>();
+    /** The child hash tables, as ints holding child id + 1, so 0 marks a free slot. */
+    private volatile List<ByteBuffer> tables = new ArrayList<>();
+    private long tableTop;
+    private final FileChannel mappedChannel;
+    private final Path mappedPath;
+    private long mappedLength;
+    private int nodeCount;
+    private int namePosition = NAME_CHUNK_SIZE;
+    private volatile boolean closed;
+    /** Readers inside {@link #enter()} per stripe, READER_PADDING slots apart. */
+    private final AtomicLongArray readers = new AtomicLongArray(READER_STRIPES * READER_PADDING);
+
+    private final EntryPath path = new EntryPath();
+    /** Directory ids by path, per archive level that is still being parsed. */
+    private final Map<Integer, Map<String, Integer>> openDirectories = new HashMap<>();
+
+    /** The outer root entries are being appended to, or NONE. */
+    private int reopenedRoot = NONE;
+    /** The first id created since the root was reopened. */
+    private int appendedFrom;
+    /** The directories of the reopened level that new entries were placed below. */
+    private BitSet grownDirectories;
+    /** The last child each of those had before, for the ones that existed already. */
+    private final Map<Integer, Integer> previousLastChild = new HashMap<>();
+
+    /**
+     * @param mapToFile true to back the tree with a memory-mapped temporary file instead
+     *                  of direct memory, so the OS can page it out under pressure.
+     */
+    OffHeapTree(boolean mapToFile) throws IOException {
+        if (mapToFile) {
+            this.mappedPath = Files.createTempFile("effective-spork-", ".tree");
+            // Unlinked as soon as it is opened on POSIX systems, and on close or exit on Windows.
+            this.mappedChannel = FileChannel.open(mappedPath, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+        } else {
+            this.mappedPath = null;
+            this.mappedChannel = null;
+        }
+    }
+
+    /**
+     * Creates a tree holding a copy of every record, name and child table of another one,
+     * copied a whole chunk at a time, so that entries can be appended to it while the
+     * original stays as it was.
+     * @param mapToFile As for {@link #OffHeapTree(boolean)}.
+     */
+    OffHeapTree(OffHeapTree original, boolean mapToFile) throws IOException {
+        this(mapToFile);
+        int stripe = original.enter();
+        try {
+            copyChunks(original.records, records, RECORDS_PER_CHUNK * RECORD_SIZE);
+            copyChunks(original.names, names, NAME_CHUNK_SIZE);
+            copyChunks(original.tables, tables, TABLE_INTS_PER_CHUNK * 4);
+        } finally {
+            original.leave(stripe);
+        }
+        this.nodeCount = original.nodeCount;
+        this.namePosition = original.namePosition;
+        this.tableTop = original.tableTop;
+    }
+
+    private void copyChunks(List<ByteBuffer> from, List<ByteBuffer> to, int size) {
+        for (ByteBuffer chunk : from) {
+            ByteBuffer source = chunk.duplicate();
+            ((Buffer) source).clear();
+            ByteBuffer copy = allocate(size);
+            copy.put(source);
+            ((Buffer) copy).clear();
+            to.add(copy);
+        }
+    }
+
+    /**
+     * @return The number of node records stored, archive roots included.
+     */
+    int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return A view of the node with the given id.
+     */
+    ArchiveNode view(int id) {
+        ensureOpen();
+        return new OffHeapArchiveNode(this, id);
+    }
+
+    // ---------------------------------------------------------------- building
+
+    @Override
+    public Integer newArchiveRoot() {
+        int id = newNode(NONE, "/");
+        setInt(id, FLAGS, FLAG_ARCHIVE_ROOT);
+        openDirectories.put(id, new HashMap<String, Integer>());
+        return id;
+    }
+
+    @Override
+    public void place(Integer root, ZipEntry entry, long localHeaderOffset, Integer nestedRoot) {
+        Map<String, Integer> directories = openDirectories.get(root);
+        boolean appending = root == reopenedRoot;
+        EntryPath path = this.path.reset(entry.getName());
+        int parent = root;
+        StringBuilder directoryPath = new StringBuilder();
+        if (appending) {
+            grow(root);
+        }
+
+        while (path.hasNextDirectory()) {
+            String part = path.nextDirectory();
+            directoryPath.append(part).append('/');
+            String key = directoryPath.toString();
+            Integer directory = directories.get(key);
+            if (directory == null && appending) {
+                directory = existingDirectory(parent, part);
+            }
+            if (directory == null || directory == NONE) {
+                directory = newDirectory(parent, part);
+            }
+            directories.put(key, directory);
+            parent = directory;
+            if (appending) {
+                grow(directory);
+            }
+        }
+
+        String finalName = path.fileName();
+        int id;
+        if (entry.isDirectory()) {
+            String key = directoryPath.append(finalName).append('/').toString();
+            Integer existing = directories.get(key);
+            if (existing == null && appending) {
+                existing = existingDirectory(parent, finalName);
+                if (existing != null) {
+                    // Its fingerprint is overwritten below, so it has to be folded up again.
+                    grow(existing);
+                    directories.put(key, existing);
+                }
+            }
+            if (existing != null && existing != NONE) {
+                // An implicit directory created for earlier entries; give it the entry's metadata.
+                id = existing;
+            } else {
+                id = newDirectory(parent, finalName);
+                directories.put(key, id);
+            }
+        } else {
+            id = newNode(parent, finalName);
+            if ((getInt(parent, FLAGS) & FLAG_DIRECTORY_CHILDREN) != 0 || appending) {
+                // The file replaces any directory of its name, so later entries below that
+                // path go to a new one; NONE also hides the directory of an earlier load.
+                String key = directoryPath.append(finalName).append('/').toString();
+                if (appending) {
+                    directories.put(key, NONE);
+                } else {
+                    directories.remove(key);
+                }
+            }
+        }
+        writeEntry(id, entry);
+        setLong(id, FINGERPRINT, TreeDiffer.entryFingerprint(finalName, entry));
+        setLong(id, LOCAL_HEADER_OFFSET, localHeaderOffset);
+        if (nestedRoot != null) {
+            setInt(id, NESTED_ROOT, nestedRoot);
+        }
+    }
+
+    @Override
+    public boolean isEmpty(Integer root) {
+        return firstChild(root) == NONE;
+    }
+
+    @Override
+    public void finishArchive(Integer root) {
+        openDirectories.remove(root);
+        if (root == reopenedRoot) {
+            finishGrownDirectories();
+            reopenedRoot = NONE;
+            grownDirectories = null;
+            previousLastChild.clear();
+        } else {
+            finishDirectories(root);
+        }
+    }
+
+    /**
+     * Reopens the outer root, for a tree created as a copy; the directories built by earlier
+     * loads are found through their child tables.
+     */
+    @Override
+    public Integer reopenArchive(Integer root) {
+        openDirectories.put(root, new HashMap<String, Integer>());
+        reopenedRoot = root;
+        appendedFrom = nodeCount;
+        grownDirectories = new BitSet();
+        return root;
+    }
+
+    /**
+     * @return The directory of that name a previous load put below the parent, or null.
+     */
+    private Integer existingDirectory(int parent, String name) {
+        if (parent >= appendedFrom) {
+            return null;
+        }
+        int id = child(parent, name.getBytes(StandardCharsets.UTF_8));
+        return id != NONE && id < appendedFrom && (isDirectoryEntry(id) || firstChild(id) != NONE) ? id : null;
+    }
+
+    /**
+     * Marks a directory of the reopened level as one that new entries are placed below.
+     */
+    private void grow(int directory) {
+        if (!grownDirectories.get(directory)) {
+            grownDirectories.set(directory);
+            if (directory < appendedFrom) {
+                previousLastChild.put(directory, getInt(directory, LAST_CHILD));
+            }
+        }
+    }
+
+    /**
+     * Brings the child tables and fingerprints of the directories that grew up to date.
+     * A child is always created after its parent, so going by descending id folds the
+     * fingerprints up from the leaves.
+     */
+    private void finishGrownDirectories() {
+        for (int node = grownDirectories.previousSetBit(nodeCount - 1); node >= 0;
+             node = grownDirectories.previousSetBit(node - 1)) {
+            if (firstChild(node) == NONE) {
+                continue;
+            }
+            int capacity = getInt(node, CHILD_TABLE_CAPACITY);
+            boolean replaced = false;
+            if (capacity != 0 && getInt(node, CHILD_COUNT) * 2 <= capacity) {
+                long base = getLong(node, CHILD_TABLE);
+                for (int child = nextSibling(previousLastChild.get(node)); child != NONE; child = nextSibling(child)) {
+                    replaced |= insertChild(base, capacity, child);
+                }
+            } else if (getInt(node, CHILD_COUNT) > INDEX_THRESHOLD) {
+                replaced = buildTable(node);
+            }
+            if (replaced || getInt(node, CHILD_TABLE_CAPACITY) == 0) {
+                unlinkReplacedChildren(node);
+            }
+            long sum = 0;
+            for (int child = firstChild(node); child != NONE; child = nextSibling(child)) {
+                sum += getLong(child, FINGERPRINT);
+            }
+            long entryFingerprint = TreeDiffer.entryFingerprint(name(node), entry(node));
+            setLong(node, FINGERPRINT, TreeDiffer.directoryFingerprint(entryFingerprint, sum));
+        }
+    }
+
+    @Override
+    public long nodesCreated() {
+        return nodeCount;
+    }
+
+    /**
+     * Appends a record whose fingerprint is that of a node without an entry, as implicit
+     * directories and archive roots are; {@link #place} overwrites it for entries.
+     */
+    private int newNode(int parent, String nodeName) {
+        byte[] name = nodeName.getBytes(StandardCharsets.UTF_8);
+        int id = nodeCount;
+        if ((id & RECORD_MASK) == 0) {
+            records.add(allocate(RECORDS_PER_CHUNK * RECORD_SIZE));
+        }
+        nodeCount++;
+        setInt(id, PARENT, parent);
+        setInt(id, FIRST_CHILD, NONE);
+        setInt(id, NEXT_SIBLING, NONE);
+        setInt(id, NESTED_ROOT, NONE);
+        setInt(id, LAST_CHILD, NONE);
+        setInt(id, FLAGS, 0);
+        setLong(id, NAME_OFFSET, storeName(name));
+        setInt(id, NAME_LENGTH, name.length);
+        setLong(id, SIZE, -1);
+        setLong(id, COMPRESSED_SIZE, -1);
+        setLong(id, TIME, -1);
+        setInt(id, CRC, 0);
+        setLong(id, LOCAL_HEADER_OFFSET, -1);
+        setInt(id, CHILD_COUNT, 0);
+        setInt(id, CHILD_TABLE_CAPACITY, 0);
+        setLong(id, CHILD_TABLE, 0);
+        setLong(id, FINGERPRINT, TreeDiffer.entryFingerprint(nodeName, null));
+
+        if (parent != NONE) {
+            setInt(parent, CHILD_COUNT, getInt(parent, CHILD_COUNT) + 1);
+            int last = getInt(parent, LAST_CHILD);
+            if (last == NONE) {
+                setInt(parent, FIRST_CHILD, id);
+            } else {
+                setInt(last, NEXT_SIBLING, id);
+            }
+            setInt(parent, LAST_CHILD, id);
+        }
+        return id;
+    }
+
+    /**
+     * Appends a directory record and marks its parent as one with directories below it.
+     */
+    private int newDirectory(int parent, String nodeName) {
+        setInt(parent, FLAGS, getInt(parent, FLAGS) | FLAG_DIRECTORY_CHILDREN);
+        return newNode(parent, nodeName);
+    }
+
+    private void writeEntry(int id, ZipEntry entry) {
+        int flags = getInt(id, FLAGS) | FLAG_HAS_ENTRY;
+        if (entry.isDirectory()) {
+            flags |= FLAG_DIRECTORY_ENTRY;
+        }
+        if (entry.getCrc() != -1) {
+            flags |= FLAG_HAS_CRC;
+            setInt(id, CRC, (int) entry.getCrc());
+        }
+        if (entry.getMethod() != -1) {
+            flags |= entry.getMethod() << METHOD_SHIFT;
+        }
+        setInt(id, FLAGS, flags);
+        setLong(id, SIZE, entry.getSize());
+        setLong(id, COMPRESSED_SIZE, entry.getCompressedSize());
+        setLong(id, TIME, entry.getTime());
+    }
+
+    /**
+     * Builds the child tables of every wide directory of one archive level, then folds the
+     * fingerprints up from the leaves. Nested archives are separate levels and were finished
+     * before the entries holding them were placed.
+     */
+    private void finishDirectories(int root) {
+        int[] stack = new int[16];
+        int depth = 0;
+        // Directories in pre-order, so walking it backwards visits children before parents.
+        int[] directories = new int[16];
+        int directoryCount = 0;
+        stack[depth++] = root;
+        while (depth > 0) {
+            int node = stack[--depth];
+            if (getInt(node, CHILD_COUNT) > INDEX_THRESHOLD ? buildTable(node) : getInt(node, CHILD_COUNT) > 1) {
+                unlinkReplacedChildren(node);
+            }
+            if (directoryCount == directories.length) {
+                directories = Arrays.copyOf(directories, directoryCount * 2);
+            }
+            directories[directoryCount++] = node;
+            for (int child = firstChild(node); child != NONE; child = nextSibling(child)) {
+                if (firstChild(child) != NONE) {
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = child;
+                }
+            }
+        }
+        for (int i = directoryCount - 1; i >= 0; i--) {
+            int node = directories[i];
+            if (firstChild(node) == NONE) {
+                continue;
+            }
+            long sum = 0;
+            for (int child = firstChild(node); child != NONE; child = nextSibling(child)) {
+                sum += getLong(child, FINGERPRINT);
+            }
+            setLong(node, FINGERPRINT, TreeDiffer.directoryFingerprint(getLong(node, FINGERPRINT), sum));
+        }
+    }
+
+    /**
+     * @return true if a child was left out of the table for a later sibling of its name.
+     */
+    private boolean buildTable(int node) {
+        int capacity = Integer.highestOneBit(getInt(node, CHILD_COUNT) * 2 - 1) << 1;
+        long base = tableTop;
+        tableTop += capacity;
+        while (tableTop > (long) tables.size() << TABLE_SHIFT) {
+            tables.add(allocate(TABLE_INTS_PER_CHUNK * 4));
+        }
+        boolean replaced = false;
+        for (int child = firstChild(node); child != NONE; child = nextSibling(child)) {
+            replaced |= insertChild(base, capacity, child);
+        }
+        setLong(node, CHILD_TABLE, base);
+        setInt(node, CHILD_TABLE_CAPACITY, capacity);
+        return replaced;
+    }
+
+    /**
+     * Puts a child in the table, in place of an earlier sibling of the same name.
+     * @return true if it replaced one.
+     */
+    private boolean insertChild(long base, int capacity, int child) {
+        int slot = nameHash(child) & (capacity - 1);
+        int entry;
+        while ((entry = getTableInt(base + slot)) != 0) {
+            if (namesEqual(entry - 1, child)) {
+                setTableInt(base + slot, child + 1);
+                return true;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+        setTableInt(base + slot, child + 1);
+        return false;
+    }
+
+    /**
+     * Takes out of the sibling list every child that a later sibling of the same name
+     * replaces, which is what the heap tree's name-keyed map does when the path comes again.
+     * A child of a directory with a table is kept only if the table holds it.
+     */
+    private void unlinkReplacedChildren(int node) {
+        int capacity = getInt(node, CHILD_TABLE_CAPACITY);
+        long base = getLong(node, CHILD_TABLE);
+        int previous = NONE;
+        int count = 0;
+        for (int child = firstChild(node); child != NONE; child = nextSibling(child)) {
+            boolean replaced = false;
+            if (capacity != 0) {
+                int slot = nameHash(child) & (capacity - 1);
+                int entry;
+                while ((entry = getTableInt(base + slot)) != 0 && !namesEqual(entry - 1, child)) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                replaced = entry - 1 != child;
+            } else {
+                for (int later = nextSibling(child); later != NONE && !replaced; later = nextSibling(later)) {
+                    replaced = namesEqual(later, child);
+                }
+            }
+            if (!replaced) {
+                if (previous == NONE) {
+                    setInt(node, FIRST_CHILD, child);
+                } else {
+                    setInt(previous, NEXT_SIBLING, child);
+                }
+                previous = child;
+                count++;
+            }
+        }
+        if (previous == NONE) {
+            setInt(node, FIRST_CHILD, NONE);
+        } else {
+            setInt(previous, NEXT_SIBLING, NONE);
+        }
+        setInt(node, LAST_CHILD, previous);
+        setInt(node, CHILD_COUNT, count);
+    }
+
+    private long storeName(byte[] name) {
+        if (namePosition + name.length > NAME_CHUNK_SIZE) {
+            names.add(allocate(NAME_CHUNK_SIZE));
+            namePosition = 0;
+        }
+        ByteBuffer chunk = names.get(names.size() - 1);
+        for (int i = 0; i < name.length; i++) {
+            chunk.put(namePosition + i, name[i]);
+        }
+        long offset = (long) (names.size() - 1) * NAME_CHUNK_SIZE + namePosition;
+        namePosition += name.length;
+        return offset;
+    }
+
+    private ByteBuffer allocate(int size) {
+        try {
+            ByteBuffer buffer;
+            if (mappedChannel != null) {
+                buffer = mappedChannel.map(FileChannel.MapMode.READ_WRITE, mappedLength, size);
+                mappedLength += size;
+            } else {
+                buffer = ByteBuffer.allocateDirect(size);
+            }
+            return buffer.order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not grow the off-heap tree file " + mappedPath, e);
+        }
+    }
+
+    // ---------------------------------------------------------------- reading
+
+    /**
+     * Registers the calling thread as reading the tree's memory until the matching
+     * {@link #leave(int)}; close waits for it before freeing anything.
+     * @return The stripe to hand to {@link #leave(int)}.
+     * @throws IllegalStateException If the tree has been closed.
+     */
+    int enter() {
+        int stripe = ((int) Thread.currentThread().getId() & (READER_STRIPES - 1)) * READER_PADDING;
+        readers.getAndIncrement(stripe);
+        if (closed) {
+            readers.getAndDecrement(stripe);
+            throw new IllegalStateException("The off-heap archive tree has been closed");
+        }
+        return stripe;
+    }
+
+    void leave(int stripe) {
+        readers.getAndDecrement(stripe);
+    }
+
+    String name(int id) {
+        return new String(nameBytes(id), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares a node's name with the given UTF-8 bytes without decoding it.
+     */
+    boolean nameEquals(int id, byte[] name) {
+        if (getInt(id, NAME_LENGTH) != name.length) {
+            return false;
+        }
+        long offset = getLong(id, NAME_OFFSET);
+        ByteBuffer chunk = nameChunk(offset);
+        int position = (int) (offset % NAME_CHUNK_SIZE);
+        for (int i = 0; i < name.length; i++) {
+            if (chunk.get(position + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean namesEqual(int id, int other) {
+        int length = getInt(id, NAME_LENGTH);
+        if (getInt(other, NAME_LENGTH) != length) {
+            return false;
+        }
+        long offset = getLong(id, NAME_OFFSET);
+        long otherOffset = getLong(other, NAME_OFFSET);
+        ByteBuffer chunk = nameChunk(offset);
+        ByteBuffer otherChunk = nameChunk(otherOffset);
+        int position = (int) (offset % NAME_CHUNK_SIZE);
+        int otherPosition = (int) (otherOffset % NAME_CHUNK_SIZE);
+        for (int i = 0; i < length; i++) {
+            if (chunk.get(position + i) != otherChunk.get(otherPosition + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The same hash as {@link #hash(byte[])}, read from the name pool without copying.
+     */
+    private int nameHash(int id) {
+        long offset = getLong(id, NAME_OFFSET);
+        int length = getInt(id, NAME_LENGTH);
+        ByteBuffer chunk = nameChunk(offset);
+        int position = (int) (offset % NAME_CHUNK_SIZE);
+        int hash = FNV_OFFSET;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (chunk.get(position + i) & 0xff)) * FNV_PRIME;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes, with the high bits folded down for the low-bit mask.
+     */
+    private static int hash(byte[] name) {
+        int hash = FNV_OFFSET;
+        for (byte b : name) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private byte[] nameBytes(int id) {
+        long offset = getLong(id, NAME_OFFSET);
+        byte[] bytes = new byte[getInt(id, NAME_LENGTH)];
+        ByteBuffer chunk = nameChunk(offset);
+        int position = (int) (offset % NAME_CHUNK_SIZE);
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = chunk.get(position + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Finds a child by its UTF-8 encoded name, through the node's child table if it has one.
+     * @return The child's id, or -1 if there is none by that name.
+     */
+    int child(int id, byte[] name) {
+        int capacity = getInt(id, CHILD_TABLE_CAPACITY);
+        if (capacity == 0) {
+            for (int child = firstChild(id); child != NONE; child = nextSibling(child)) {
+                if (nameEquals(child, name)) {
+                    return child;
+                }
+            }
+            return NONE;
+        }
+        long base = getLong(id, CHILD_TABLE);
+        int slot = hash(name) & (capacity - 1);
+        int entry;
+        while ((entry = getTableInt(base + slot)) != 0) {
+            if (nameEquals(entry - 1, name)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+        return NONE;
+    }
+
+    int childCount(int id) {
+        return getInt(id, CHILD_COUNT);
+    }
+
+    int firstChild(int id) {
+        return getInt(id, FIRST_CHILD);
+    }
+
+    int nextSibling(int id) {
+        return getInt(id, NEXT_SIBLING);
+    }
+
+    int nestedRoot(int id) {
+        return getInt(id, NESTED_ROOT);
+    }
+
+    long fingerprint(int id) {
+        return getLong(id, FINGERPRINT);
+    }
+
+    long localHeaderOffset(int id) {
+        return getLong(id, LOCAL_HEADER_OFFSET);
+    }
+
+    boolean isDirectoryEntry(int id) {
+        return (getInt(id, FLAGS) & FLAG_DIRECTORY_ENTRY) != 0;
+    }
+
+    /**
+     * Rebuilds the ZipEntry of a node, with its full name inside its archive.
+     * @return A fresh ZipEntry, or null for implicit directories and archive roots.
+     */
+    ZipEntry entry(int id) {
+        int flags = getInt(id, FLAGS);
+        if ((flags & FLAG_HAS_ENTRY) == 0) {
+            return null;
+        }
+        StringBuilder fullName = new StringBuilder(name(id));
+        for (int parent = getInt(id, PARENT);
+             parent != NONE && (getInt(parent, FLAGS) & FLAG_ARCHIVE_ROOT) == 0;
+             parent = getInt(parent, PARENT)) {
+            fullName.insert(0, '/').insert(0, name(parent));
+        }
+        if ((flags & FLAG_DIRECTORY_ENTRY) != 0) {
+            fullName.append('/');
+        }
+        ZipEntry entry = new ZipEntry(fullName.toString());
+        int method = flags >>> METHOD_SHIFT;
+        if (method == ZipEntry.STORED || method == ZipEntry.DEFLATED) {
+            entry.setMethod(method);
+        }
+        long size = getLong(id, SIZE);
+        if (size != -1) {
+            entry.setSize(size);
+        }
+        long compressedSize = getLong(id, COMPRESSED_SIZE);
+        if (compressedSize != -1) {
+            entry.setCompressedSize(compressedSize);
+        }
+        long time = getLong(id, TIME);
+        if (time != -1) {
+            entry.setTime(time);
+        }
+        if ((flags & FLAG_HAS_CRC) != 0) {
+            entry.setCrc(getInt(id, CRC) & 0xFFFFFFFFL);
+        }
+        return entry;
+    }
+
+    private int getInt(int id, int field) {
+        return chunk(records, id >>> RECORD_SHIFT).getInt(((id & RECORD_MASK) * RECORD_SIZE) + field);
+    }
+
+    private long getLong(int id, int field) {
+        return chunk(records, id >>> RECORD_SHIFT).getLong(((id & RECORD_MASK) * RECORD_SIZE) + field);
+    }
+
+    private ByteBuffer nameChunk(long offset) {
+        return chunk(names, (int) (offset / NAME_CHUNK_SIZE));
+    }
+
+    private void setInt(int id, int field, int value) {
+        records.get(id >>> RECORD_SHIFT).putInt(((id & RECORD_MASK) * RECORD_SIZE) + field, value);
+    }
+
+    private void setLong(int id, int field, long value) {
+        records.get(id >>> RECORD_SHIFT).putLong(((id & RECORD_MASK) * RECORD_SIZE) + field, value);
+    }
+
+    private int getTableInt(long position) {
+        return chunk(tables, (int) (position >>> TABLE_SHIFT)).getInt((int) (position & TABLE_MASK) << 2);
+    }
+
+    private void setTableInt(long position, int value) {
+        tables.get((int) (position >>> TABLE_SHIFT)).putInt((int) (position & TABLE_MASK) << 2, value);
+    }
+
+    /**
+     * @param chunks The list as read from its field, before the closed flag is checked: if
+     *               it is the empty list left by close, the flag is already set.
+     */
+    private ByteBuffer chunk(List<ByteBuffer> chunks, int index) {
+        ensureOpen();
+        return chunks.get(index);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The off-heap archive tree has been closed");
+        }
+    }
+
+    /**
+     * Makes the tree unusable, waits for the reads in progress to finish and frees the
+     * memory of every buffer; closes and removes the backing file, if any. Views of this
+     * tree fail with an IllegalStateException afterwards.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // A reader that entered before the flag was set is counted in its stripe; any later
+        // one sees the flag and backs out, so once every stripe drains nobody holds a buffer.
+        for (int stripe = 0; stripe < READER_STRIPES * READER_PADDING; stripe += READER_PADDING) {
+            while (readers.get(stripe) != 0) {
+                Thread.yield();
+            }
+        }
+        List<ByteBuffer> freed = new ArrayList<>(records);
+        freed.addAll(names);
+        freed.addAll(tables);
+        records = Collections.emptyList();
+        names = Collections.emptyList();
+        tables = Collections.emptyList();
+        openDirectories.clear();
+        for (ByteBuffer buffer : freed) {
+            DirectBuffers.release(buffer);
+        }
+        if (mappedChannel != null) {
+            // Mappings stay valid after their channel is closed.
+            mappedChannel.close();
+        }
+    }
+}
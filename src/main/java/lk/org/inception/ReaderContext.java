@@ -0,0 +1,116 @@
+package lk.org.inception;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.zip.Inflater;
+
+/**
+ * Pools the native {@link Inflater}s and large I/O buffers used while parsing an archive.
+ * Every nesting level borrows one of each and hands them back when it is done, so a load
+ * over thousands of nested archives only ever allocates as many as its deepest nesting.
+ * <p>
+ * A context is not thread-safe: use one per load (the default in {@link ZipTreeBuilder})
+ * or keep one per thread and reuse it across loads. Closing it frees the native memory
+ * of every pooled Inflater.
+ */
+public final class ReaderContext implements AutoCloseable {
+
+    /** Default buffer size: large enough to read the outer file in few, big chunks. */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final int bufferSize;
+    private final Deque<Inflater> inflaters = new ArrayDeque<>();
+    private final Deque<byte[]> buffers = new ArrayDeque<>();
+    private int inflatersCreated;
+    private int buffersCreated;
+    private boolean closed;
+
+    public ReaderContext() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize The size in bytes of each pooled I/O buffer.
+     */
+    public ReaderContext(int bufferSize) {
+        if (bufferSize < 1024) {
+            throw new IllegalArgumentException("bufferSize must be at least 1024 bytes: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return How many Inflaters this context has had to allocate so far.
+     */
+    public int getInflatersCreated() {
+        return inflatersCreated;
+    }
+
+    /**
+     * @return How many I/O buffers this context has had to allocate so far.
+     */
+    public int getBuffersCreated() {
+        return buffersCreated;
+    }
+
+    Inflater acquireInflater() {
+        ensureOpen();
+        Inflater inflater = inflaters.pollFirst();
+        if (inflater == null) {
+            inflatersCreated++;
+            inflater = new Inflater(true);
+        }
+        return inflater;
+    }
+
+    void releaseInflater(Inflater inflater) {
+        if (closed) {
+            inflater.end();
+            return;
+        }
+        inflater.reset();
+        inflaters.addFirst(inflater);
+    }
+
+    byte[] acquireBuffer() {
+        ensureOpen();
+        byte[] buffer = buffers.pollFirst();
+        if (buffer == null) {
+            buffersCreated++;
+            buffer = new byte[bufferSize];
+        }
+        return buffer;
+    }
+
+    void releaseBuffer(byte[] buffer) {
+        if (!closed) {
+            buffers.addFirst(buffer);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("ReaderContext is closed");
+        }
+    }
+
+    /**
+     * Releases the native memory of every pooled Inflater and drops the pooled buffers.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Inflater inflater : inflaters) {
+            inflater.end();
+        }
+        inflaters.clear();
+        buffers.clear();
+    }
+}
@@ -0,0 +1,188 @@
+package lk.org.inception;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+
+/**
+ * Compares two archive trees in lockstep.
+ * <p>
+ * Every node carries a 64-bit fingerprint, recorded once when its archive is loaded, that
+ * sums up the names, sizes and CRCs of everything below it. Subtrees whose fingerprints
+ * match are skipped without being visited, and a nested archive whose own size and CRC
+ * match is never opened, so the walk only descends where something actually changed.
+ * Nodes built by hand have no recorded fingerprint and are always descended into.
+ */
+final class TreeDiffer {
+
+    private final DiffListener listener;
+
+    TreeDiffer(DiffListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Records the fingerprint of every node of one archive level, children before parents.
+     * Nested archives are separate levels and were fingerprinted when they were finished.
+     * @param stale The nodes to fingerprint, or null for all; the others keep the one they have.
+     * @return The fingerprint of {@code node}.
+     */
+    static long recordFingerprints(ArchiveNode node, Set<ArchiveNode> stale) {
+        if (stale != null && !stale.contains(node)) {
+            return node.getFingerprint();
+        }
+        long fingerprint = entryFingerprint(node.getName(), node.getEntry());
+        Map<String, ArchiveNode> children = node.getChildren();
+        if (!children.isEmpty()) {
+            long sum = 0;
+            for (ArchiveNode child : children.values()) {
+                sum += recordFingerprints(child, stale);
+            }
+            fingerprint = directoryFingerprint(fingerprint, sum);
+        }
+        node.setFingerprint(fingerprint);
+        return fingerprint;
+    }
+
+    /**
+     * @param entry The node's entry, or null for implicit directories and archive roots.
+     * @return The fingerprint of a node without children; never 0.
+     */
+    static long entryFingerprint(String name, ZipEntry entry) {
+        long hash = mix(name.hashCode() + 0x9E3779B97F4A7C15L);
+        if (entry == null || entry.isDirectory()) {
+            return nonZero(mix(hash ^ 0x5DEECE66DL));
+        }
+        return nonZero(mix(mix(hash ^ entry.getSize()) ^ entry.getCrc()));
+    }
+
+    /**
+     * @param childSum The sum of the children's fingerprints; a sum is order-independent,
+     *                 so reordered entries do not count as a change.
+     * @return The fingerprint of a node with children; never 0.
+     */
+    static long directoryFingerprint(long entryFingerprint, long childSum) {
+        return nonZero(mix(entryFingerprint + mix(childSum)));
+    }
+
+    private static long nonZero(long fingerprint) {
+        return fingerprint != 0 ? fingerprint : 1;
+    }
+
+    /**
+     * The SplitMix64 finalizer: spreads every input bit over the whole result.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return The recorded fingerprint, one computed on the spot for a childless node built
+     * by hand, or 0 if the node is a directory built by hand.
+     */
+    private static long fingerprintOf(ArchiveNode node) {
+        long fingerprint = node.getFingerprint();
+        if (fingerprint == 0 && node.getChildren().isEmpty()) {
+            return entryFingerprint(node.getName(), node.getEntry());
+        }
+        return fingerprint;
+    }
+
+    private static boolean sameFingerprint(ArchiveNode oldNode, ArchiveNode newNode) {
+        long fingerprint = fingerprintOf(oldNode);
+        return fingerprint != 0 && fingerprint == fingerprintOf(newNode);
+    }
+
+    void diffRoots(ArchiveNode oldRoot, ArchiveNode newRoot) {
+        String path = oldRoot.getName();
+        if (!sameFingerprint(oldRoot, newRoot)) {
+            diffChildren(oldRoot, newRoot, path);
+        }
+    }
+
+    private void compare(ArchiveNode oldNode, ArchiveNode newNode, String path) {
+        if (oldNode.isDirectory() != newNode.isDirectory()) {
+            listener.onDifference(DiffListener.Kind.CHANGED, path, oldNode, newNode);
+            reportBelow(DiffListener.Kind.REMOVED, oldNode, path);
+            reportBelow(DiffListener.Kind.ADDED, newNode, path);
+            return;
+        }
+        if (sameFingerprint(oldNode, newNode)) {
+            return;
+        }
+        if (!oldNode.isDirectory() && !sameContent(oldNode.getEntry(), newNode.getEntry())) {
+            listener.onDifference(DiffListener.Kind.CHANGED, path, oldNode, newNode);
+        }
+
+        ArchiveNode oldNested = oldNode.getNestedArchiveRoot();
+        ArchiveNode newNested = newNode.getNestedArchiveRoot();
+        if (oldNested != null && newNested != null) {
+            if (!sameFingerprint(oldNested, newNested)) {
+                diffChildren(oldNested, newNested, path);
+            }
+        } else if (oldNested != null) {
+            reportChildren(DiffListener.Kind.REMOVED, oldNested, path);
+        } else if (newNested != null) {
+            reportChildren(DiffListener.Kind.ADDED, newNested, path);
+        }
+
+        diffChildren(oldNode, newNode, path);
+    }
+
+    private void diffChildren(ArchiveNode oldParent, ArchiveNode newParent, String parentPath) {
+        Map<String, ArchiveNode> oldChildren = oldParent.getChildren();
+        Map<String, ArchiveNode> newChildren = newParent.getChildren();
+        if (oldChildren.isEmpty() && newChildren.isEmpty()) {
+            return;
+        }
+        for (ArchiveNode oldChild : oldChildren.values()) {
+            String path = parentPath + "/" + oldChild.getName();
+            ArchiveNode newChild = newChildren.get(oldChild.getName());
+            if (newChild == null) {
+                report(DiffListener.Kind.REMOVED, oldChild, path);
+            } else {
+                compare(oldChild, newChild, path);
+            }
+        }
+        for (ArchiveNode newChild : newChildren.values()) {
+            if (!oldChildren.containsKey(newChild.getName())) {
+                report(DiffListener.Kind.ADDED, newChild, parentPath + "/" + newChild.getName());
+            }
+        }
+    }
+
+    private static boolean sameContent(ZipEntry oldEntry, ZipEntry newEntry) {
+        if (oldEntry == null || newEntry == null) {
+            return oldEntry == newEntry;
+        }
+        return oldEntry.getSize() == newEntry.getSize() && oldEntry.getCrc() == newEntry.getCrc();
+    }
+
+    /**
+     * Reports a node and everything below it, nested archives included.
+     */
+    private void report(DiffListener.Kind kind, ArchiveNode node, String path) {
+        if (kind == DiffListener.Kind.ADDED) {
+            listener.onDifference(kind, path, null, node);
+        } else {
+            listener.onDifference(kind, path, node, null);
+        }
+        reportBelow(kind, node, path);
+    }
+
+    private void reportBelow(DiffListener.Kind kind, ArchiveNode node, String path) {
+        ArchiveNode nestedRoot = node.getNestedArchiveRoot();
+        if (nestedRoot != null) {
+            reportChildren(kind, nestedRoot, path);
+        }
+        reportChildren(kind, node, path);
+    }
+
+    private void reportChildren(DiffListener.Kind kind, ArchiveNode parent, String parentPath) {
+        for (ArchiveNode child : parent.getChildren().values()) {
+            report(kind, child, parentPath + "/" + child.getName());
+        }
+    }
+}
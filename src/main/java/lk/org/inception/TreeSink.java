@@ -0,0 +1,50 @@
+package lk.org.inception;
+
+import java.util.zip.ZipEntry;
+
+/**
+ * Where {@link ZipTreeBuilder} puts the nodes it parses. The builder owns the ZIP reading,
+ * filtering and nested-archive recursion; a sink only decides how nodes are stored.
+ * @param <N> The handle type the sink uses for an archive root or node.
+ */
+interface TreeSink<N> {
+
+    /**
+     * @return A new, empty root for an archive level.
+     */
+    N newArchiveRoot();
+
+    /**
+     * Creates the node for an entry below the given archive root, along with any
+     * parent directories that do not exist yet. Every sink resolves repeated paths the
+     * same way: a later entry replaces an earlier node of the same path, and moves to the
+     * end of its siblings, unless it is a directory entry and the earlier node a directory,
+     * which then takes the entry's metadata and keeps its children and its place.
+     * @param localHeaderOffset Where the entry's local header starts in its archive, or -1 if unknown.
+     * @param nestedRoot        The parsed nested archive held by the entry, or null.
+     */
+    void place(N root, ZipEntry entry, long localHeaderOffset, N nestedRoot);
+
+    /**
+     * @return true if nothing has been placed below the root.
+     */
+    boolean isEmpty(N root);
+
+    /**
+     * Called once every entry of the archive level has been placed.
+     */
+    void finishArchive(N root);
+
+    /**
+     * Readies the outer root of an earlier, finished load to take the entries appended to
+     * its archive since; {@link #finishArchive} is called again once they are placed. The
+     * earlier tree must read as before afterwards.
+     * @return The root to place the new entries below: the same one, or a copy of it.
+     */
+    N reopenArchive(N root);
+
+    /**
+     * @return How many nodes the sink has created so far, archive roots included.
+     */
+    long nodesCreated();
+}
@@ -0,0 +1,462 @@
+package lk.org.inception;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * A sequential reader over the local file headers of a ZIP archive.
+ * <p>
+ * It does the same job as {@link java.util.zip.ZipInputStream}, but borrows its Inflater
+ * and its read buffers from a {@link ReaderContext} instead of allocating new ones for
+ * every archive, and reads its source in buffer-sized chunks. It never closes its source,
+ * so a nested archive can be read straight from the entry stream of its parent.
+ */
+final class ZipStreamReader implements Closeable {
+
+    private static final int LOCSIG = 0x04034b50;
+    private static final int EXTSIG = 0x08074b50;
+    private static final int LOCHDR = 30;
+    private static final int ZIP64_EXTID = 0x0001;
+    private static final long ZIP64_MAGICVAL = 0xFFFFFFFFL;
+    private static final int FLAG_DATA_DESCRIPTOR = 8;
+
+    private final InputStream in;
+    private final ReaderContext context;
+    private final byte[] buf;
+    private final CRC32 crc = new CRC32();
+    private final DosTimeCache times = new DosTimeCache();
+    private final EntryInputStream entryStream = new EntryInputStream();
+    private Inflater inflater;
+    private byte[] drainBuffer;
+    private int pos;
+    private int limit;
+
+    private ZipEntry entry;
+    private boolean hasDescriptor;
+    private boolean zip64;
+    private long remaining;
+    private boolean entryEof;
+    private boolean closed;
+
+    private long bytesRead;
+    private long bytesInflated;
+    private int entryCount;
+    private long localHeaderOffset = -1;
+
+    ZipStreamReader(InputStream in, ReaderContext context) {
+        this.in = in;
+        this.context = context;
+        this.buf = context.acquireBuffer();
+    }
+
+    /**
+     * Skips whatever is left of the current entry and reads the next local file header.
+     * @return The next entry, or null once the central directory or the end of input is reached.
+     */
+    ZipEntry getNextEntry() throws IOException {
+        ensureOpen();
+        if (entry != null) {
+            closeEntry();
+        }
+        if (!fill(LOCHDR) || getInt(pos) != LOCSIG) {
+            return null;
+        }
+        localHeaderOffset = bytesRead - (limit - pos);
+        int flag = getShort(pos + 6);
+        int method = getShort(pos + 8);
+        long dosTime = getUnsignedInt(pos + 10);
+        long crcValue = getUnsignedInt(pos + 14);
+        long compressedSize = getUnsignedInt(pos + 18);
+        long size = getUnsignedInt(pos + 22);
+        int nameLength = getShort(pos + 26);
+        int extraLength = getShort(pos + 28);
+        pos += LOCHDR;
+
+        ZipEntry next = new ZipEntry(readName(nameLength));
+        entryCount++;
+        if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED) {
+            throw new ZipException("invalid compression method " + method + " for entry " + next.getName());
+        }
+        next.setMethod(method);
+        times.setTime(next, dosTime);
+
+        hasDescriptor = (flag & FLAG_DATA_DESCRIPTOR) == FLAG_DATA_DESCRIPTOR;
+        zip64 = false;
+        if (hasDescriptor) {
+            if (method != ZipEntry.DEFLATED) {
+                throw new ZipException("only DEFLATED entries can have EXT descriptor");
+            }
+        } else {
+            next.setCrc(crcValue);
+        }
+
+        if (extraLength > 0) {
+            byte[] extra = new byte[extraLength];
+            readFully(extra);
+            next.setExtra(extra);
+            if (compressedSize == ZIP64_MAGICVAL || size == ZIP64_MAGICVAL) {
+                long[] sizes = readZip64Sizes(extra, size, compressedSize);
+                size = sizes[0];
+                compressedSize = sizes[1];
+                zip64 = true;
+            }
+        }
+        if (!hasDescriptor) {
+            next.setSize(size);
+            next.setCompressedSize(compressedSize);
+        }
+
+        entry = next;
+        entryEof = false;
+        remaining = method == ZipEntry.STORED ? size : 0;
+        crc.reset();
+        if (method == ZipEntry.DEFLATED) {
+            if (inflater == null) {
+                inflater = context.acquireInflater();
+            } else {
+                inflater.reset();
+            }
+        }
+        return next;
+    }
+
+    /**
+     * @return A stream over the uncompressed data of the current entry. It is only valid
+     * until the next call to {@link #getNextEntry()} and must not be closed by the caller.
+     */
+    InputStream getEntryStream() {
+        return entryStream;
+    }
+
+    /**
+     * @return Where the local header of the current entry starts, counted from the
+     * position the source was at when this reader was created.
+     */
+    long getLocalHeaderOffset() {
+        return localHeaderOffset;
+    }
+
+    /**
+     * @return How many bytes this reader has pulled from its source so far.
+     */
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return How many bytes the Inflater has produced for completed DEFLATED entries.
+     */
+    long getBytesInflated() {
+        return bytesInflated;
+    }
+
+    /**
+     * @return How many local headers this reader has read.
+     */
+    int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Reads through the rest of the current entry so the next header can be read.
+     */
+    void closeEntry() throws IOException {
+        if (entry == null) {
+            return;
+        }
+        if (drainBuffer == null) {
+            drainBuffer = context.acquireBuffer();
+        }
+        while (entryStream.read(drainBuffer, 0, drainBuffer.length) != -1) {
+            // Discard; reading verifies the entry's sizes and CRC as a side effect.
+        }
+        entry = null;
+    }
+
+    /**
+     * Hands the pooled Inflater and buffers back to the context. The source is left open.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        entry = null;
+        if (inflater != null) {
+            context.releaseInflater(inflater);
+            inflater = null;
+        }
+        if (drainBuffer != null) {
+            context.releaseBuffer(drainBuffer);
+            drainBuffer = null;
+        }
+        context.releaseBuffer(buf);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    /**
+     * Makes sure at least {@code n} unread bytes are buffered, reading more from the source if needed.
+     * @return false if the source ended first.
+     */
+    private boolean fill(int n) throws IOException {
+        if (limit - pos >= n) {
+            return true;
+        }
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        while (limit < n) {
+            int read = in.read(buf, limit, buf.length - limit);
+            if (read == -1) {
+                return false;
+            }
+            limit += read;
+            bytesRead += read;
+        }
+        return true;
+    }
+
+    /**
+     * Refills an empty buffer with whatever the source has available.
+     */
+    private void refill() throws IOException {
+        pos = 0;
+        limit = 0;
+        int read;
+        while ((read = in.read(buf, 0, buf.length)) == 0) {
+            // A well-behaved stream blocks instead, but keep trying rather than report a false EOF.
+        }
+        if (read == -1) {
+            throw new EOFException("Unexpected end of ZIP input stream");
+        }
+        limit = read;
+        bytesRead += read;
+    }
+
+    /**
+     * Decodes an entry name straight from the buffer; only a name longer than the whole
+     * buffer is copied out first.
+     */
+    private String readName(int length) throws IOException {
+        if (length > buf.length) {
+            byte[] name = new byte[length];
+            readFully(name);
+            return new String(name, StandardCharsets.UTF_8);
+        }
+        if (!fill(length)) {
+            throw new EOFException("Unexpected end of ZIP input stream");
+        }
+        String name = new String(buf, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        return name;
+    }
+
+    private void readFully(byte[] b) throws IOException {
+        int off = 0;
+        while (off < b.length) {
+            if (pos == limit) {
+                refill();
+            }
+            int n = Math.min(b.length - off, limit - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            off += n;
+        }
+    }
+
+    private void readDataDescriptor() throws IOException {
+        long bytesRead = inflater.getBytesRead();
+        long bytesWritten = inflater.getBytesWritten();
+        boolean wide = zip64 || bytesRead > ZIP64_MAGICVAL || bytesWritten > ZIP64_MAGICVAL;
+        int fieldsLength = wide ? 20 : 12;
+        if (!fill(4)) {
+            throw new EOFException("Unexpected end of ZIP input stream");
+        }
+        if (getInt(pos) == EXTSIG) {
+            pos += 4;
+        }
+        if (!fill(fieldsLength)) {
+            throw new EOFException("Unexpected end of ZIP input stream");
+        }
+        entry.setCrc(getUnsignedInt(pos));
+        if (wide) {
+            entry.setCompressedSize(getLong(pos + 4));
+            entry.setSize(getLong(pos + 12));
+        } else {
+            entry.setCompressedSize(getUnsignedInt(pos + 4));
+            entry.setSize(getUnsignedInt(pos + 8));
+        }
+        pos += fieldsLength;
+    }
+
+    private void finishEntryData() throws IOException {
+        entryEof = true;
+        if (entry.getMethod() == ZipEntry.DEFLATED) {
+            pos = limit - inflater.getRemaining();
+            bytesInflated += inflater.getBytesWritten();
+            if (hasDescriptor) {
+                readDataDescriptor();
+            }
+            if (entry.getSize() != inflater.getBytesWritten()) {
+                throw new ZipException("invalid entry size (expected " + entry.getSize()
+                        + " but got " + inflater.getBytesWritten() + " bytes)");
+            }
+            if (entry.getCompressedSize() != inflater.getBytesRead()) {
+                throw new ZipException("invalid entry compressed size (expected " + entry.getCompressedSize()
+                        + " but got " + inflater.getBytesRead() + " bytes)");
+            }
+        }
+        if (entry.getCrc() != crc.getValue()) {
+            throw new ZipException("invalid entry CRC (expected 0x" + Long.toHexString(entry.getCrc())
+                    + " but got 0x" + Long.toHexString(crc.getValue()) + ")");
+        }
+    }
+
+    private static long[] readZip64Sizes(byte[] extra, long size, long compressedSize) throws ZipException {
+        int off = 0;
+        while (off + 4 <= extra.length) {
+            int tag = (extra[off] & 0xff) | ((extra[off + 1] & 0xff) << 8);
+            int length = (extra[off + 2] & 0xff) | ((extra[off + 3] & 0xff) << 8);
+            off += 4;
+            if (off + length > extra.length) {
+                break;
+            }
+            if (tag == ZIP64_EXTID) {
+                int field = off;
+                if (size == ZIP64_MAGICVAL) {
+                    if (field + 8 > off + length) {
+                        throw new ZipException("invalid zip64 extra data field size");
+                    }
+                    size = getLong(extra, field);
+                    field += 8;
+                }
+                if (compressedSize == ZIP64_MAGICVAL) {
+                    if (field + 8 > off + length) {
+                        throw new ZipException("invalid zip64 extra data field size");
+                    }
+                    compressedSize = getLong(extra, field);
+                }
+                break;
+            }
+            off += length;
+        }
+        return new long[]{size, compressedSize};
+    }
+
+    private int getShort(int off) {
+        return (buf[off] & 0xff) | ((buf[off + 1] & 0xff) << 8);
+    }
+
+    private int getInt(int off) {
+        return getShort(off) | (getShort(off + 2) << 16);
+    }
+
+    private long getUnsignedInt(int off) {
+        return getInt(off) & 0xFFFFFFFFL;
+    }
+
+    private long getLong(int off) {
+        return getLong(buf, off);
+    }
+
+    private static long getLong(byte[] b, int off) {
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (b[off + i] & 0xff);
+        }
+        return value;
+    }
+
+    /**
+     * The uncompressed data of the current entry, read straight out of the shared buffer.
+     */
+    private final class EntryInputStream extends InputStream {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            if (entry == null || entryEof) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            int n = entry.getMethod() == ZipEntry.STORED ? readStored(b, off, len) : readDeflated(b, off, len);
+            if (n == -1) {
+                return -1;
+            }
+            crc.update(b, off, n);
+            if (entry.getMethod() == ZipEntry.STORED && remaining == 0) {
+                finishEntryData();
+            }
+            return n;
+        }
+
+        private int readStored(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                finishEntryData();
+                return -1;
+            }
+            if (pos == limit) {
+                refill();
+            }
+            int n = (int) Math.min(len, Math.min(remaining, limit - pos));
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            remaining -= n;
+            return n;
+        }
+
+        private int readDeflated(byte[] b, int off, int len) throws IOException {
+            try {
+                int n;
+                while ((n = inflater.inflate(b, off, len)) == 0) {
+                    if (inflater.finished() || inflater.needsDictionary()) {
+                        finishEntryData();
+                        return -1;
+                    }
+                    if (inflater.needsInput()) {
+                        if (pos == limit) {
+                            refill();
+                        }
+                        // The inflater now owns [pos, limit); whatever it leaves unread is
+                        // recovered from getRemaining() once the entry ends.
+                        inflater.setInput(buf, pos, limit - pos);
+                        pos = limit;
+                    }
+                }
+                return n;
+            } catch (DataFormatException e) {
+                String message = e.getMessage();
+                throw new ZipException(message != null ? message : "Invalid ZLIB data format");
+            }
+        }
+
+        @Override
+        public void close() {
+            // The entry stream belongs to the reader; closing it must not end the archive.
+        }
+    }
+}
@@ -1,75 +1,389 @@
 package lk.org.inception;
 
-import java.io.FilterInputStream;
+import lk.org.inception.metrics.MetricsListener;
+
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipException;
 
 public class ZipTreeBuilder {
 
+    private final ReaderContext sharedContext;
+    private final EntryFilter filter;
+    private final MetricsListener metricsListener;
+
+    /**
+     * Creates a builder that pools its Inflaters and buffers per load.
+     */
+    public ZipTreeBuilder() {
+        this(null, LoadOptions.defaults());
+    }
+
+    /**
+     * Creates a builder that borrows its Inflaters and buffers from the given context,
+     * so they are reused across loads. The caller owns the context and must close it.
+     * @param context The pool to read with, confined to the thread using this builder.
+     */
+    public ZipTreeBuilder(ReaderContext context) {
+        this(context, LoadOptions.defaults());
+    }
+
+    /**
+     * Creates a builder that applies the given options while parsing.
+     * @param context The pool to read with, or null to use a fresh one per load.
+     * @param options The options whose entry filter and metrics listener are applied to every load.
+     */
+    public ZipTreeBuilder(ReaderContext context, LoadOptions options) {
+        this.sharedContext = context;
+        this.filter = options.getFilter();
+        this.metricsListener = options.getMetricsListener();
+    }
+
     /**
-     * A helper class that wraps an InputStream and prevents it from being closed.
-     * This is crucial for handling nested streams.
+     * Public entry point. It is responsible for opening and closing the file.
      */
-    private static class NonClosingInputStream extends FilterInputStream {
-        public NonClosingInputStream(InputStream in) {
-            super(in);
+    public ArchiveNode buildTree(Path zipPath) throws IOException {
+        return buildTree(zipPath, new HeapTreeSink());
+    }
+
+    /**
+     * Parses the archive into the given sink and returns the sink's handle for its root.
+     * The file is memory-mapped and indexed through its central directory.
+     */
+    <N> N buildTree(Path zipPath, TreeSink<N> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(zipPath, StandardOpenOption.READ);
+             ArchiveBytes bytes = ArchiveBytes.map(channel)) {
+            return buildTree(bytes, zipPath.toString(), sink);
         }
+    }
 
-        @Override
-        public void close() {
-            // Do nothing, shielding the underlying stream from being closed.
+    /**
+     * Parses an archive with random access to its bytes, through its central directory.
+     * @param source A description of the bytes, reported to the metrics listener.
+     */
+    <N> N buildTree(ArchiveBytes bytes, String source, TreeSink<N> sink) throws IOException {
+        return buildTree(bytes, source, sink, null);
+    }
+
+    /**
+     * Parses an archive with random access to its bytes, taking the nested archives of the
+     * outer level from an earlier tree wherever it has an unchanged one.
+     * @param previous Finds reusable nested archive roots, or null to parse every one.
+     */
+    <N> N buildTree(ArchiveBytes bytes, String source, TreeSink<N> sink, NestedArchiveLookup<N> previous)
+            throws IOException {
+        return load(source, sink, previous, load -> buildTreeFromBytes(bytes, load, "", 0));
+    }
+
+    /**
+     * Parses only the central directory records appended to an archive since an earlier
+     * load, placing their entries on a reopened copy of that load's outer root.
+     * @param root         The outer root the earlier load returned.
+     * @param knownEntries How many records the earlier load read; they must be unchanged.
+     * @param knownBytes   How many bytes of central directory those records take.
+     * @return The root that holds every entry; see {@link TreeSink#reopenArchive}.
+     */
+    <N> N appendToTree(ArchiveBytes bytes, String source, TreeSink<N> sink, N root, long knownEntries,
+                       long knownBytes) throws IOException {
+        return load(source, sink, null, load -> {
+            CentralDirectoryReader directory = CentralDirectoryReader.open(bytes);
+            if (directory == null) {
+                throw new ZipException("zip END header not found");
+            }
+            directory.skip(knownEntries, knownBytes);
+            return readDirectory(directory, bytes, load, load.sink.reopenArchive(root), "", 0);
+        });
+    }
+
+    /**
+     * Parses an archive read sequentially from a stream, which is left open.
+     * @param source A description of the stream, reported to the metrics listener.
+     */
+    <N> N buildTree(InputStream is, String source, TreeSink<N> sink) throws IOException {
+        return load(source, sink, null, load -> buildTreeFromStream(is, load, "", 0));
+    }
+
+    private <N> N load(String source, TreeSink<N> sink, NestedArchiveLookup<N> previous, OuterArchive<N> outer)
+            throws IOException {
+        if (sharedContext != null) {
+            return load(source, sharedContext, sink, previous, outer);
+        }
+        try (ReaderContext context = new ReaderContext()) {
+            return load(source, context, sink, previous, outer);
+        }
+    }
+
+    private <N> N load(String source, ReaderContext context, TreeSink<N> sink, NestedArchiveLookup<N> previous,
+                       OuterArchive<N> outer) throws IOException {
+        LoadRecorder recorder = metricsListener != null ? new LoadRecorder(metricsListener, source) : null;
+        try {
+            return outer.read(new Load<>(context, sink, recorder, previous));
+        } finally {
+            if (recorder != null) {
+                recorder.loadFinished(sink.nodesCreated());
+            }
         }
     }
 
     /**
-     * Public entry point. It is responsible for creating and closing the initial stream.
+     * Reads one archive level from its central directory. Only the end records, the
+     * central directory and the local headers of nested archives are touched; a stored
+     * nested archive is read the same way, in place, and a compressed one is streamed.
+     * Archives without an end record (truncated ones, say) fall back to streaming.
+     * @param archivePrefix The path of this archive followed by "/", or "" for the outer one.
+     *                      Only tracked when filtering or recording metrics.
+     * @param depth         0 for the outer archive, one more for each level of nesting.
      */
-    public ArchiveNode buildTree(Path zipPath) throws IOException {
-        try (InputStream fis = Files.newInputStream(zipPath)) {
-            return buildTreeFromStream(fis);
+    private <N> N buildTreeFromBytes(ArchiveBytes bytes, Load<N> load, String archivePrefix, int depth)
+            throws IOException {
+        CentralDirectoryReader directory = CentralDirectoryReader.open(bytes);
+        if (directory == null) {
+            return buildTreeFromStream(bytes.newInputStream(), load, archivePrefix, depth);
         }
+        return readDirectory(directory, bytes, load, load.sink.newArchiveRoot(), archivePrefix, depth);
     }
 
     /**
-     * This method correctly creates a ZipInputStream for each archive level
-     * and uses the NonClosingInputStream wrapper for recursion.
+     * Places every entry the central directory reader has left to read below the root.
      */
-    private ArchiveNode buildTreeFromStream(InputStream is) throws IOException {
-        ArchiveNode root = new ArchiveNode("/", null);
-        try (ZipInputStream zis = new ZipInputStream(is)) {
+    private <N> N readDirectory(CentralDirectoryReader directory, ArchiveBytes bytes, Load<N> load, N root,
+                                String archivePrefix, int depth) throws IOException {
+        String archivePath = archivePath(archivePrefix);
+        long startedAt = load.recorder != null ? load.recorder.archiveStarted(archivePath, depth) : 0;
+        int skippedEntries = directory.getEntryCount();
+        long bytesInflated = 0;
+        try {
             ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                placeEntryInTree(root, entry, zis);
-                zis.closeEntry();
+            while ((entry = directory.getNextEntry()) != null) {
+                bytesInflated += placeIndexedEntry(root, entry, directory, bytes, load, archivePrefix, depth);
+            }
+        } finally {
+            if (load.recorder != null) {
+                load.recorder.archiveFinished(archivePath, depth, startedAt, directory.getEntryCount() - skippedEntries,
+                        directory.getBytesRead(), bytesInflated);
             }
         }
+        load.sink.finishArchive(root);
         return root;
     }
 
-    private void placeEntryInTree(ArchiveNode root, ZipEntry entry, ZipInputStream zis) throws IOException {
-        Path path = Paths.get(entry.getName());
-        ArchiveNode currentNode = root;
+    /**
+     * @return How many bytes were inflated to read a compressed nested archive, if any.
+     */
+    private <N> long placeIndexedEntry(N root, ZipEntry entry, CentralDirectoryReader directory, ArchiveBytes bytes,
+                                       Load<N> load, String archivePrefix, int depth) throws IOException {
+        boolean filtered = !filter.acceptsAll();
+        boolean trackPaths = filtered || load.recorder != null;
+        String entryPath = trackPaths ? archivePrefix + trimTrailingSlash(entry.getName()) : null;
 
-        for (int i = 0; i < path.getNameCount() - 1; i++) {
-            String part = path.getName(i).toString();
-            currentNode = currentNode.getChildren().computeIfAbsent(part, name -> new ArchiveNode(name, null));
+        N nestedTree = null;
+        long bytesInflated = 0;
+        if (depth == 0 && load.previous != null && isNestedArchive(entry)) {
+            nestedTree = load.previous.find(entry, directory.getLocalHeaderOffset());
+        }
+        if (nestedTree == null && isNestedArchive(entry) && (!filtered || filter.mayContainMatches(entryPath))) {
+            String nestedPrefix = trackPaths ? entryPath + "/" : archivePrefix;
+            ArchiveBytes data = bytes.slice(directory.getDataOffset(), entry.getCompressedSize());
+            if (entry.getMethod() == ZipEntry.STORED) {
+                nestedTree = buildTreeFromBytes(data, load, nestedPrefix, depth + 1);
+            } else {
+                Inflater inflater = load.context.acquireInflater();
+                byte[] input = load.context.acquireBuffer();
+                try {
+                    nestedTree = buildTreeFromStream(new SliceInflaterInputStream(data, inflater, input),
+                            load, nestedPrefix, depth + 1);
+                    bytesInflated = inflater.getBytesWritten();
+                } finally {
+                    load.context.releaseBuffer(input);
+                    load.context.releaseInflater(inflater);
+                }
+            }
         }
 
-        String finalName = path.getFileName().toString();
-        ArchiveNode newNode = new ArchiveNode(finalName, entry);
-        currentNode.getChildren().put(finalName, newNode);
+        if (filtered && !keep(entry, entryPath, nestedTree, load)) {
+            return bytesInflated;
+        }
+        load.sink.place(root, entry, directory.getLocalHeaderOffset(), nestedTree);
+        return bytesInflated;
+    }
 
-        if (!entry.isDirectory() && entry.getName().toLowerCase().endsWith(".zip")) {
-            // THE FIX:
-            // We are positioned to read the nested zip's data from 'zis'.
-            // We pass 'zis' to the recursive call, but shield it from being closed.
-            ArchiveNode nestedTree = buildTreeFromStream(new NonClosingInputStream(zis));
-            newNode.setNestedArchiveRoot(nestedTree);
+    /**
+     * Reads one archive level sequentially, from its local headers. Every level, nested or
+     * not, borrows its Inflater and buffer from the context and returns them before its
+     * parent moves on.
+     * @param archivePrefix The path of this archive followed by "/", or "" for the outer one.
+     *                      Only tracked when filtering or recording metrics.
+     * @param depth         0 for the outer archive, one more for each level of nesting.
+     */
+    private <N> N buildTreeFromStream(InputStream is, Load<N> load, String archivePrefix, int depth) throws IOException {
+        N root = load.sink.newArchiveRoot();
+        String archivePath = archivePath(archivePrefix);
+        long startedAt = load.recorder != null ? load.recorder.archiveStarted(archivePath, depth) : 0;
+        ZipStreamReader reader = new ZipStreamReader(is, load.context);
+        try {
+            ZipEntry entry;
+            while ((entry = reader.getNextEntry()) != null) {
+                placeEntryInTree(root, entry, reader, load, archivePrefix, depth);
+            }
+        } finally {
+            if (load.recorder != null) {
+                load.recorder.archiveFinished(archivePath, depth, startedAt, reader.getEntryCount(),
+                        reader.getBytesRead(), reader.getBytesInflated());
+            }
+            reader.close();
+        }
+        load.sink.finishArchive(root);
+        return root;
+    }
+
+    private <N> void placeEntryInTree(N root, ZipEntry entry, ZipStreamReader reader, Load<N> load,
+                                      String archivePrefix, int depth) throws IOException {
+        boolean filtered = !filter.acceptsAll();
+        boolean trackPaths = filtered || load.recorder != null;
+        String entryPath = trackPaths ? archivePrefix + trimTrailingSlash(entry.getName()) : null;
+
+        N nestedTree = null;
+        if (isNestedArchive(entry) && (!filtered || filter.mayContainMatches(entryPath))) {
+            // The entry stream is positioned at the nested zip's data and is never closed
+            // by the nested reader, so the outer level can carry on once it returns.
+            nestedTree = buildTreeFromStream(reader.getEntryStream(), load,
+                    trackPaths ? entryPath + "/" : archivePrefix, depth + 1);
+        }
+
+        // Sizes and CRC trail the data when a data descriptor is used, so finish reading
+        // the entry before it is filtered or copied into the sink.
+        reader.closeEntry();
+
+        if (filtered && !keep(entry, entryPath, nestedTree, load)) {
+            return;
+        }
+        load.sink.place(root, entry, reader.getLocalHeaderOffset(), nestedTree);
+    }
+
+    /**
+     * @return true if the filter accepts the entry, or it is a nested archive holding accepted entries.
+     */
+    private <N> boolean keep(ZipEntry entry, String entryPath, N nestedTree, Load<N> load) {
+        boolean holdsMatches = nestedTree != null && !load.sink.isEmpty(nestedTree);
+        return filter.accept(entryPath, entry) || holdsMatches;
+    }
+
+    private static boolean isNestedArchive(ZipEntry entry) {
+        return !entry.isDirectory() && entry.getName().toLowerCase().endsWith(".zip");
+    }
+
+    private static String archivePath(String archivePrefix) {
+        return archivePrefix.isEmpty() ? "/" : archivePrefix.substring(0, archivePrefix.length() - 1);
+    }
+
+    private static String trimTrailingSlash(String name) {
+        return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+    }
+
+    /**
+     * Supplies nested archives parsed by an earlier load of the same file, so an incremental
+     * reload only parses the nested archives that were added or changed.
+     */
+    interface NestedArchiveLookup<N> {
+        /**
+         * @param entry             An entry of the outer archive that holds a nested archive.
+         * @param localHeaderOffset Where the entry's local header now starts.
+         * @return The earlier root of the same nested archive, or null if it must be parsed.
+         */
+        N find(ZipEntry entry, long localHeaderOffset);
+    }
+
+    /**
+     * Reads the outer archive of a load.
+     */
+    private interface OuterArchive<N> {
+        N read(Load<N> load) throws IOException;
+    }
+
+    /**
+     * The per-load state threaded through the recursion.
+     */
+    private static final class Load<N> {
+        final ReaderContext context;
+        final TreeSink<N> sink;
+        final LoadRecorder recorder;
+        final NestedArchiveLookup<N> previous;
+
+        Load(ReaderContext context, TreeSink<N> sink, LoadRecorder recorder, NestedArchiveLookup<N> previous) {
+            this.context = context;
+            this.sink = sink;
+            this.recorder = recorder;
+            this.previous = previous;
+        }
+    }
+
+    /**
+     * Inflates a raw-deflated slice of the archive with a borrowed Inflater, copying the
+     * compressed bytes through a borrowed buffer, so a compressed nested archive allocates
+     * nothing but this stream. Both are returned to the context by the caller.
+     */
+    private static final class SliceInflaterInputStream extends InputStream {
+        private final ArchiveBytes data;
+        private final Inflater inflater;
+        private final byte[] input;
+        private long position;
+        private boolean padded;
+
+        SliceInflaterInputStream(ArchiveBytes data, Inflater inflater, byte[] input) {
+            this.data = data;
+            this.inflater = inflater;
+            this.input = input;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            try {
+                int n;
+                while ((n = inflater.inflate(b, off, len)) == 0) {
+                    if (inflater.finished() || inflater.needsDictionary()) {
+                        return -1;
+                    }
+                    if (inflater.needsInput()) {
+                        fill();
+                    }
+                }
+                return n;
+            } catch (DataFormatException e) {
+                String message = e.getMessage();
+                throw new ZipException(message != null ? message : "Invalid ZLIB data format");
+            }
+        }
+
+        private void fill() throws IOException {
+            int length = (int) Math.min(input.length, data.size() - position);
+            if (length > 0) {
+                data.get(position, input, 0, length);
+                position += length;
+                inflater.setInput(input, 0, length);
+            } else if (!padded) {
+                // A raw Inflater may need one byte past the data to see the end, as in ZipFile
+                padded = true;
+                input[0] = 0;
+                inflater.setInput(input, 0, 1);
+            } else {
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+package lk.org.inception.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lk.org.inception.ArchiveLoad")
+@Label("Archive Load")
+@Category("effective-spork")
+@Description("A complete EffectiveSpork load, nested archives included")
+class ArchiveLoadEvent extends Event {
+
+    @Label("Source")
+    String source;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Bytes Inflated")
+    @DataAmount
+    long bytesInflated;
+
+    @Label("Entries")
+    long entries;
+
+    @Label("Nodes Created")
+    long nodesCreated;
+
+    @Label("Max Depth")
+    int maxDepth;
+}
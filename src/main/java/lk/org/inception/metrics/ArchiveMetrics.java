@@ -0,0 +1,73 @@
+package lk.org.inception.metrics;
+
+/**
+ * What it took to parse one archive level, the outer archive or a nested one.
+ * Counts cover this level only; time includes the archives nested inside it.
+ */
+public final class ArchiveMetrics {
+
+    private final String path;
+    private final int depth;
+    private final int entries;
+    private final long bytesRead;
+    private final long bytesInflated;
+    private final long nanos;
+
+    public ArchiveMetrics(String path, int depth, int entries, long bytesRead, long bytesInflated, long nanos) {
+        this.path = path;
+        this.depth = depth;
+        this.entries = entries;
+        this.bytesRead = bytesRead;
+        this.bytesInflated = bytesInflated;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @return The path of the archive, "/" for the outer one.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return 0 for the outer archive, 1 for archives directly inside it, and so on.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return The number of entries in this archive, filtered or not.
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return The bytes read from this archive's source: the file for the outer archive,
+     * the uncompressed data of the enclosing entry for a nested one.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return The bytes produced by inflating this archive's DEFLATED entries.
+     */
+    public long getBytesInflated() {
+        return bytesInflated;
+    }
+
+    /**
+     * @return The time spent on this archive, nested archives included.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ArchiveMetrics{path='" + path + "', depth=" + depth + ", entries=" + entries
+                + ", bytesRead=" + bytesRead + ", bytesInflated=" + bytesInflated + ", nanos=" + nanos + "}";
+    }
+}
@@ -0,0 +1,115 @@
+package lk.org.inception.metrics;
+
+import lk.org.inception.visitors.TreeVisitor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Emits JDK Flight Recorder events for every load, nested archive and visitor pass:
+ * {@code lk.org.inception.ArchiveLoad}, {@code lk.org.inception.NestedArchive} and
+ * {@code lk.org.inception.VisitorPass}, all in the "effective-spork" category.
+ * Events that are not enabled in the running recording cost one check each.
+ * <p>
+ * Use {@link #create()} rather than the constructor: on a JVM without Flight Recorder it
+ * returns a listener that does nothing instead of failing.
+ */
+public final class JfrMetricsListener implements MetricsListener {
+
+    private static final MetricsListener NO_OP = new MetricsListener() {
+    };
+
+    /** Open events per thread, since loads and visitor passes may run concurrently. */
+    private final ThreadLocal<Deque<Object>> openEvents = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private JfrMetricsListener() {
+    }
+
+    /**
+     * @return A listener emitting JFR events, or one that does nothing if this JVM has no JFR.
+     */
+    public static MetricsListener create() {
+        return isAvailable() ? new JfrMetricsListener() : NO_OP;
+    }
+
+    /**
+     * @return true if this JVM ships the {@code jdk.jfr} API.
+     */
+    public static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrMetricsListener.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void loadStarted(String source) {
+        ArchiveLoadEvent event = new ArchiveLoadEvent();
+        event.source = source;
+        event.begin();
+        openEvents.get().push(event);
+    }
+
+    @Override
+    public void archiveStarted(String path, int depth) {
+        NestedArchiveEvent event = new NestedArchiveEvent();
+        event.begin();
+        openEvents.get().push(event);
+    }
+
+    @Override
+    public void archiveFinished(ArchiveMetrics metrics) {
+        NestedArchiveEvent event = (NestedArchiveEvent) openEvents.get().pop();
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = metrics.getPath();
+            event.depth = metrics.getDepth();
+            event.entries = metrics.getEntries();
+            event.bytesRead = metrics.getBytesRead();
+            event.bytesInflated = metrics.getBytesInflated();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void loadFinished(LoadMetrics metrics) {
+        ArchiveLoadEvent event = (ArchiveLoadEvent) openEvents.get().pop();
+        event.end();
+        if (event.shouldCommit()) {
+            event.bytesRead = metrics.getBytesRead();
+            event.bytesInflated = metrics.getBytesInflated();
+            event.entries = metrics.getEntries();
+            event.nodesCreated = metrics.getNodesCreated();
+            event.maxDepth = metrics.getMaxDepth();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void visitorPassStarted(List<TreeVisitor<?>> visitors) {
+        VisitorPassEvent event = new VisitorPassEvent();
+        event.begin();
+        openEvents.get().push(event);
+    }
+
+    @Override
+    public void visitorPassFinished(List<TreeVisitor<?>> visitors, long nodesVisited, long nanos) {
+        VisitorPassEvent event = (VisitorPassEvent) openEvents.get().pop();
+        event.end();
+        if (event.shouldCommit()) {
+            StringBuilder names = new StringBuilder();
+            for (TreeVisitor<?> visitor : visitors) {
+                if (names.length() > 0) {
+                    names.append(", ");
+                }
+                names.append(visitor.getClass().getSimpleName());
+            }
+            event.visitors = names.toString();
+            event.nodesVisited = nodesVisited;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package lk.org.inception.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Totals for a whole load, across every nesting level.
+ */
+public final class LoadMetrics {
+
+    private final String source;
+    private final long bytesRead;
+    private final long bytesInflated;
+    private final long entries;
+    private final long nodesCreated;
+    private final int maxDepth;
+    private final long[] nanosByDepth;
+    private final long nanos;
+
+    public LoadMetrics(String source, long bytesRead, long bytesInflated, long entries, long nodesCreated,
+                       int maxDepth, long[] nanosByDepth, long nanos) {
+        this.source = source;
+        this.bytesRead = bytesRead;
+        this.bytesInflated = bytesInflated;
+        this.entries = entries;
+        this.nodesCreated = nodesCreated;
+        this.maxDepth = maxDepth;
+        this.nanosByDepth = nanosByDepth.clone();
+        this.nanos = nanos;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return The bytes read from the outer source.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return The bytes inflated at every nesting level together.
+     */
+    public long getBytesInflated() {
+        return bytesInflated;
+    }
+
+    /**
+     * @return The entries read at every nesting level, including filtered ones.
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return The tree nodes created, implicit directories and archive roots included.
+     */
+    public long getNodesCreated() {
+        return nodesCreated;
+    }
+
+    /**
+     * @return The deepest nesting level reached; 0 if there were no nested archives.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @param depth A nesting level, 0 being the outer archive.
+     * @return The time spent in archives at that level, excluding the archives nested
+     * inside them, or 0 if the level was never reached.
+     */
+    public long getNanosAtDepth(int depth) {
+        return depth < nanosByDepth.length ? nanosByDepth[depth] : 0;
+    }
+
+    /**
+     * @return The wall-clock duration of the whole load.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadMetrics{source='" + source + "', bytesRead=" + bytesRead + ", bytesInflated=" + bytesInflated
+                + ", entries=" + entries + ", nodesCreated=" + nodesCreated + ", maxDepth=" + maxDepth
+                + ", nanosByDepth=" + Arrays.toString(nanosByDepth) + ", nanos=" + nanos + "}";
+    }
+}
@@ -0,0 +1,50 @@
+package lk.org.inception.metrics;
+
+import lk.org.inception.visitors.TreeVisitor;
+
+import java.util.List;
+
+/**
+ * Receives instrumentation from a load and from visitor passes. Every method has an empty
+ * default, so an implementation only overrides what it needs. When no listener is configured
+ * the library skips all timing and bookkeeping, so leaving one installed is the only cost.
+ * <p>
+ * Archive callbacks arrive on the loading thread, strictly nested: every
+ * {@link #archiveStarted} is matched by an {@link #archiveFinished} before its parent
+ * finishes. Visitor pass callbacks arrive on whichever thread calls {@code process}.
+ */
+public interface MetricsListener {
+
+    /**
+     * @param source A description of what is being loaded, such as the file path.
+     */
+    default void loadStarted(String source) {
+    }
+
+    /**
+     * @param path  The path of the archive, "/" for the outer one.
+     * @param depth 0 for the outer archive, 1 for archives directly inside it, and so on.
+     */
+    default void archiveStarted(String path, int depth) {
+    }
+
+    default void archiveFinished(ArchiveMetrics metrics) {
+    }
+
+    default void loadFinished(LoadMetrics metrics) {
+    }
+
+    /**
+     * @param visitors The visitors about to walk the tree.
+     */
+    default void visitorPassStarted(List<TreeVisitor<?>> visitors) {
+    }
+
+    /**
+     * @param visitors     The visitors that walked the tree.
+     * @param nodesVisited How many nodes each visitor saw.
+     * @param nanos        The wall-clock duration of the pass.
+     */
+    default void visitorPassFinished(List<TreeVisitor<?>> visitors, long nodesVisited, long nanos) {
+    }
+}
@@ -0,0 +1,32 @@
+package lk.org.inception.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lk.org.inception.NestedArchive")
+@Label("Nested Archive")
+@Category("effective-spork")
+@Description("One archive level parsed during a load, including the archives inside it")
+class NestedArchiveEvent extends Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Entries")
+    int entries;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Bytes Inflated")
+    @DataAmount
+    long bytesInflated;
+}
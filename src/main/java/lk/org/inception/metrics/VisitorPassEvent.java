@@ -0,0 +1,20 @@
+package lk.org.inception.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("lk.org.inception.VisitorPass")
+@Label("Visitor Pass")
+@Category("effective-spork")
+@Description("One EffectiveSpork.process call walking the tree")
+class VisitorPassEvent extends Event {
+
+    @Label("Visitors")
+    String visitors;
+
+    @Label("Nodes Visited")
+    long nodesVisited;
+}
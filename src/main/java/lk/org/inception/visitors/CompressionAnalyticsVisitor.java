@@ -0,0 +1,46 @@
+package lk.org.inception.visitors;
+
+import lk.org.inception.ArchiveNode;
+import java.util.zip.ZipEntry;
+
+/**
+ * A visitor that builds a {@link CompressionReport} over every file in an archive tree,
+ * nested archives included, to spot content that compresses poorly (e.g. media stored
+ * with DEFLATE) or large files worth storing differently.
+ * <p>
+ * Files whose sizes are unknown are skipped. For parallel passes over a frozen tree,
+ * give each partition its own visitor and merge the reports.
+ */
+public class CompressionAnalyticsVisitor implements TreeVisitor<CompressionReport> {
+
+    public static final int DEFAULT_TOP_K = 10;
+    public static final int DEFAULT_MAX_GROUPS = 1024;
+
+    private final CompressionReport report;
+
+    public CompressionAnalyticsVisitor() {
+        this(DEFAULT_TOP_K, DEFAULT_MAX_GROUPS);
+    }
+
+    /**
+     * @param topK      How many of the largest files to keep.
+     * @param maxGroups How many extensions, and how many directories, to keep stats for.
+     */
+    public CompressionAnalyticsVisitor(int topK, int maxGroups) {
+        this.report = new CompressionReport(topK, maxGroups);
+    }
+
+    @Override
+    public void visit(ArchiveNode node, String path) {
+        ZipEntry entry = node.getEntry();
+        if (node.isDirectory() || entry == null || entry.getSize() < 0 || entry.getCompressedSize() < 0) {
+            return;
+        }
+        report.add(path, node.getName(), entry.getSize(), entry.getCompressedSize(), entry.getMethod());
+    }
+
+    @Override
+    public CompressionReport getResult() {
+        return report;
+    }
+}
@@ -0,0 +1,100 @@
+package lk.org.inception.visitors;
+
+/**
+ * Compression and size analytics for the files of one or more archive trees: overall
+ * totals, totals per extension and per directory, a size histogram and the largest
+ * entries. Its memory is bounded by the top-K and group limits it was created with, not by
+ * the size of the tree, and reports built over separate subtrees or separate archives
+ * combine with {@link #merge}.
+ */
+public final class CompressionReport {
+
+    /** The extension key of files without one. */
+    public static final String NO_EXTENSION = "";
+
+    private final CompressionStats totals = new CompressionStats();
+    private final GroupedCompressionStats byExtension;
+    private final GroupedCompressionStats byDirectory;
+    private final SizeHistogram sizes = new SizeHistogram();
+    private final TopEntries largest;
+
+    /**
+     * @param topK      How many of the largest entries to keep.
+     * @param maxGroups How many extensions, and how many directories, to keep stats for.
+     */
+    public CompressionReport(int topK, int maxGroups) {
+        this.byExtension = new GroupedCompressionStats(maxGroups);
+        this.byDirectory = new GroupedCompressionStats(maxGroups);
+        this.largest = new TopEntries(topK);
+    }
+
+    void add(String path, String name, long size, long compressedSize, int method) {
+        totals.add(size, compressedSize, method);
+        byExtension.add(extensionOf(name), size, compressedSize, method);
+        byDirectory.add(directoryOf(path), size, compressedSize, method);
+        sizes.add(size);
+        largest.offer(path, size);
+    }
+
+    /**
+     * Adds another report's figures to this one.
+     * @return This instance.
+     */
+    public CompressionReport merge(CompressionReport other) {
+        totals.merge(other.totals);
+        byExtension.merge(other.byExtension);
+        byDirectory.merge(other.byDirectory);
+        sizes.merge(other.sizes);
+        largest.merge(other.largest);
+        return this;
+    }
+
+    /**
+     * @return The totals over every file, nested archives counted both as files and
+     * through their own entries.
+     */
+    public CompressionStats getTotals() {
+        return totals;
+    }
+
+    /**
+     * @return Stats keyed by lower-case extension without the dot, e.g. "jpg", or
+     * {@link #NO_EXTENSION}.
+     */
+    public GroupedCompressionStats getByExtension() {
+        return byExtension;
+    }
+
+    /**
+     * @return Stats keyed by the path of the directory directly holding the files, e.g.
+     * "//nested.zip/docs"; files at the root of the outer archive fall under "/".
+     */
+    public GroupedCompressionStats getByDirectory() {
+        return byDirectory;
+    }
+
+    /**
+     * @return The histogram of uncompressed file sizes.
+     */
+    public SizeHistogram getSizeHistogram() {
+        return sizes;
+    }
+
+    /**
+     * @return The largest files by uncompressed size.
+     */
+    public TopEntries getLargest() {
+        return largest;
+    }
+
+    static String extensionOf(String name) {
+        int dot = name.lastIndexOf('.');
+        // A leading dot marks a hidden file, not an extension.
+        return dot <= 0 || dot == name.length() - 1 ? NO_EXTENSION : name.substring(dot + 1).toLowerCase();
+    }
+
+    static String directoryOf(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash <= 1 ? "/" : path.substring(0, slash);
+    }
+}
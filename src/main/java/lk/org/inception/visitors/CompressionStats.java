@@ -0,0 +1,92 @@
+package lk.org.inception.visitors;
+
+import java.util.zip.ZipEntry;
+
+/**
+ * Running totals of stored and uncompressed bytes for a group of entries. A handful of
+ * counters, whatever the number of entries added; two instances are combined with
+ * {@link #merge}.
+ */
+public final class CompressionStats {
+
+    private long entries;
+    private long size;
+    private long compressedSize;
+    private long deflatedEntries;
+    private long deflatedSize;
+    private long deflatedCompressedSize;
+
+    void add(long entrySize, long entryCompressedSize, int method) {
+        entries++;
+        size += entrySize;
+        compressedSize += entryCompressedSize;
+        if (method == ZipEntry.DEFLATED) {
+            deflatedEntries++;
+            deflatedSize += entrySize;
+            deflatedCompressedSize += entryCompressedSize;
+        }
+    }
+
+    /**
+     * Adds another group's totals to this one.
+     * @return This instance.
+     */
+    public CompressionStats merge(CompressionStats other) {
+        entries += other.entries;
+        size += other.size;
+        compressedSize += other.compressedSize;
+        deflatedEntries += other.deflatedEntries;
+        deflatedSize += other.deflatedSize;
+        deflatedCompressedSize += other.deflatedCompressedSize;
+        return this;
+    }
+
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return The uncompressed bytes of every entry.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return The bytes the entries take up in the archive.
+     */
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * @return Stored bytes per uncompressed byte: 1.0 means no saving, and anything close
+     * to it for DEFLATED entries means the content was already compressed.
+     */
+    public double getRatio() {
+        return ratio(compressedSize, size);
+    }
+
+    public long getDeflatedEntries() {
+        return deflatedEntries;
+    }
+
+    /**
+     * @return The ratio of the DEFLATED entries alone, so STORED ones cannot hide
+     * content that DEFLATE was wasted on.
+     */
+    public double getDeflatedRatio() {
+        return ratio(deflatedCompressedSize, deflatedSize);
+    }
+
+    private static double ratio(long compressed, long uncompressed) {
+        return uncompressed == 0 ? 1.0 : (double) compressed / uncompressed;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionStats{entries=" + entries + ", size=" + size + ", compressedSize=" + compressedSize
+                + ", deflatedEntries=" + deflatedEntries + ", ratio=" + getRatio()
+                + ", deflatedRatio=" + getDeflatedRatio() + "}";
+    }
+}
@@ -0,0 +1,78 @@
+package lk.org.inception.visitors;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link CompressionStats} per key, such as a file extension or a directory, for at most a
+ * fixed number of keys. Once that many keys are tracked, entries under any new key are
+ * added to a single overflow group instead, so memory stays bounded however many distinct
+ * keys an archive has.
+ */
+public final class GroupedCompressionStats {
+
+    private final int maxGroups;
+    private final Map<String, CompressionStats> groups = new HashMap<>();
+    private final CompressionStats overflow = new CompressionStats();
+
+    /**
+     * @param maxGroups How many keys to track before new ones go to the overflow group.
+     */
+    public GroupedCompressionStats(int maxGroups) {
+        if (maxGroups < 0) {
+            throw new IllegalArgumentException("maxGroups must not be negative: " + maxGroups);
+        }
+        this.maxGroups = maxGroups;
+    }
+
+    void add(String key, long size, long compressedSize, int method) {
+        statsFor(key).add(size, compressedSize, method);
+    }
+
+    /**
+     * Adds another instance's groups to this one, key by key. Keys that no longer fit
+     * are added to the overflow group.
+     * @return This instance.
+     */
+    public GroupedCompressionStats merge(GroupedCompressionStats other) {
+        for (Map.Entry<String, CompressionStats> group : other.groups.entrySet()) {
+            statsFor(group.getKey()).merge(group.getValue());
+        }
+        overflow.merge(other.overflow);
+        return this;
+    }
+
+    /**
+     * @return The stats for the key, or null if it was never seen or did not fit.
+     */
+    public CompressionStats get(String key) {
+        return groups.get(key);
+    }
+
+    /**
+     * @return Every tracked key and its stats.
+     */
+    public Map<String, CompressionStats> getGroups() {
+        return Collections.unmodifiableMap(groups);
+    }
+
+    /**
+     * @return The totals of the entries whose keys did not fit.
+     */
+    public CompressionStats getOverflow() {
+        return overflow;
+    }
+
+    private CompressionStats statsFor(String key) {
+        CompressionStats stats = groups.get(key);
+        if (stats == null) {
+            if (groups.size() >= maxGroups) {
+                return overflow;
+            }
+            stats = new CompressionStats();
+            groups.put(key, stats);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,92 @@
+package lk.org.inception.visitors;
+
+/**
+ * A histogram of entry sizes in power-of-two buckets: bucket 0 holds empty entries and
+ * bucket {@code b} sizes from 2<sup>b-1</sup> up to, but excluding, 2<sup>b</sup>. Every
+ * possible size fits in {@link #BUCKETS} buckets, so the histogram has a fixed size and
+ * two of them are combined by adding bucket by bucket.
+ */
+public final class SizeHistogram {
+
+    public static final int BUCKETS = 64;
+
+    private final long[] counts = new long[BUCKETS];
+    private final long[] bytes = new long[BUCKETS];
+    private long totalCount;
+
+    void add(long size) {
+        int bucket = bucketOf(size);
+        counts[bucket]++;
+        bytes[bucket] += size;
+        totalCount++;
+    }
+
+    /**
+     * Adds another histogram's counts to this one.
+     * @return This instance.
+     */
+    public SizeHistogram merge(SizeHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+            bytes[i] += other.bytes[i];
+        }
+        totalCount += other.totalCount;
+        return this;
+    }
+
+    /**
+     * @return The bucket a non-negative size falls into.
+     */
+    public static int bucketOf(long size) {
+        return size == 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(size);
+    }
+
+    /**
+     * @return The smallest size in the bucket.
+     */
+    public static long lowerBound(int bucket) {
+        return bucket == 0 ? 0 : 1L << (bucket - 1);
+    }
+
+    /**
+     * @return The largest size in the bucket.
+     */
+    public static long upperBound(int bucket) {
+        return bucket == 0 ? 0 : bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    public long getCount(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * @return The sum of the sizes in the bucket.
+     */
+    public long getBytes(int bucket) {
+        return bytes[bucket];
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @param quantile Between 0 and 1, e.g. 0.99 for the 99th percentile.
+     * @return The upper bound of the bucket holding that quantile, which overestimates the
+     * true size by less than a factor of two; 0 if the histogram is empty.
+     */
+    public long getQuantileUpperBound(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("quantile must be between 0 and 1: " + quantile);
+        }
+        long rank = (long) Math.ceil(quantile * totalCount);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return upperBound(i);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,137 @@
+package lk.org.inception.visitors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The K largest entries seen, kept in a bounded min-heap of parallel arrays. Memory is
+ * fixed by K, whatever the number of entries offered, and merging two instances keeps the
+ * K largest of both, so partial results from separate passes combine exactly.
+ */
+public final class TopEntries {
+
+    private final long[] sizes;
+    private final String[] paths;
+    private int count;
+
+    /**
+     * @param capacity How many entries to keep.
+     */
+    public TopEntries(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.sizes = new long[capacity];
+        this.paths = new String[capacity];
+    }
+
+    void offer(String path, long size) {
+        if (count < sizes.length) {
+            sizes[count] = size;
+            paths[count] = path;
+            siftUp(count++);
+        } else if (size > sizes[0]) {
+            sizes[0] = size;
+            paths[0] = path;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Offers every entry kept by another instance to this one.
+     * @return This instance.
+     */
+    public TopEntries merge(TopEntries other) {
+        for (int i = 0; i < other.count; i++) {
+            offer(other.paths[i], other.sizes[i]);
+        }
+        return this;
+    }
+
+    /**
+     * @return The entries kept, largest first; ties are ordered by path.
+     */
+    public List<Entry> getEntries() {
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(new Entry(paths[i], sizes[i]));
+        }
+        Collections.sort(entries);
+        return entries;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (sizes[parent] <= sizes[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < count && sizes[left] < sizes[smallest]) {
+                smallest = left;
+            }
+            if (right < count && sizes[right] < sizes[smallest]) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long size = sizes[a];
+        sizes[a] = sizes[b];
+        sizes[b] = size;
+        String path = paths[a];
+        paths[a] = paths[b];
+        paths[b] = path;
+    }
+
+    /**
+     * One of the largest entries.
+     */
+    public static final class Entry implements Comparable<Entry> {
+        private final String path;
+        private final long size;
+
+        Entry(String path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return The uncompressed size.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int bySize = Long.compare(other.size, size);
+            return bySize != 0 ? bySize : path.compareTo(other.path);
+        }
+
+        @Override
+        public String toString() {
+            return path + " (" + size + " bytes)";
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package lk.org.inception;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ArchiveBytesTest {
+
+    /** 16-byte windows, so every multi-byte field below has a chance to straddle two of them. */
+    private static final int WINDOW_SHIFT = 4;
+
+    private Path tempFile;
+    private FileChannel channel;
+    private ArchiveBytes bytes;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempFile = Files.createTempFile("test-bytes-", ".bin");
+        byte[] content = new byte[100];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Files.write(tempFile, content);
+        channel = FileChannel.open(tempFile, StandardOpenOption.READ);
+        bytes = ArchiveBytes.map(channel, WINDOW_SHIFT);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        bytes.close();
+        channel.close();
+        Files.deleteIfExists(tempFile);
+    }
+
+    @Test
+    void getters_readLittleEndianFields_withinAndAcrossWindows() throws IOException {
+        for (int position = 0; position <= 92; position++) {
+            // Arrange: what a single little-endian buffer over the same bytes says
+            ByteBuffer expected = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < 8; i++) {
+                expected.put((byte) (position + i));
+            }
+
+            // Act & Assert
+            assertThat(bytes.getShort(position)).as("short at %d", position).isEqualTo(expected.getShort(0) & 0xffff);
+            assertThat(bytes.getUnsignedInt(position)).as("int at %d", position)
+                    .isEqualTo(expected.getInt(0) & 0xFFFFFFFFL);
+            assertThat(bytes.getLong(position)).as("long at %d", position).isEqualTo(expected.getLong(0));
+        }
+    }
+
+    @Test
+    void get_copiesAcrossSeveralWindows() throws IOException {
+        // Act
+        byte[] target = new byte[50];
+        bytes.get(7, target, 0, 50);
+
+        // Assert
+        for (int i = 0; i < target.length; i++) {
+            assertThat(target[i]).isEqualTo((byte) (7 + i));
+        }
+    }
+
+    @Test
+    void slice_readsRelativeToItsStart_andStreamsOnlyItsRange() throws IOException {
+        // Arrange
+        ArchiveBytes slice = bytes.slice(30, 40);
+
+        // Act
+        InputStream in = slice.newInputStream();
+        byte[] streamed = new byte[64];
+        int total = 0;
+        int n;
+        while ((n = in.read(streamed, total, streamed.length - total)) > 0) {
+            total += n;
+        }
+
+        // Assert
+        assertThat(slice.size()).isEqualTo(40);
+        assertThat(slice.getShort(0)).isEqualTo(30 | 31 << 8);
+        assertThat(total).isEqualTo(40);
+        assertThat(streamed[39]).isEqualTo((byte) 69);
+    }
+
+    @Test
+    void reads_beyondTheEnd_throwEofException() throws IOException {
+        ArchiveBytes slice = bytes.slice(90, 10);
+
+        assertThatThrownBy(() -> bytes.getLong(93)).isInstanceOf(EOFException.class);
+        assertThatThrownBy(() -> slice.getShort(9)).isInstanceOf(EOFException.class);
+        assertThatThrownBy(() -> bytes.slice(50, 51)).isInstanceOf(EOFException.class);
+    }
+
+    @Test
+    void wrap_readsFromTheBufferPosition_withoutMovingIt() throws IOException {
+        // Arrange
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(tempFile));
+        buffer.position(20);
+
+        // Act
+        ArchiveBytes wrapped = ArchiveBytes.wrap(buffer);
+
+        // Assert
+        assertThat(wrapped.size()).isEqualTo(80);
+        assertThat(wrapped.getUnsignedInt(0)).isEqualTo(bytes.getUnsignedInt(20));
+        assertThat(wrapped.getLong(72)).isEqualTo(bytes.getLong(92));
+        assertThat(buffer.position()).isEqualTo(20);
+    }
+
+    @Test
+    void read_fromAChannel_matchesTheMapping_asWindowsAreRecycled() throws IOException {
+        // Arrange: 4-byte windows, so 25 of them compete for a handful of slots
+        try (ArchiveBytes read = ArchiveBytes.read(channel, 2)) {
+            byte[] expected = new byte[100];
+            bytes.get(0, expected, 0, 100);
+
+            // Act & Assert: jump back and forth, as indexing a nested archive does
+            for (int position = 92; position >= 0; position -= 7) {
+                assertThat(read.getLong(position)).as("long at %d", position).isEqualTo(bytes.getLong(position));
+                assertThat(read.getShort(99 - position)).isEqualTo(bytes.getShort(99 - position));
+            }
+            byte[] copied = new byte[100];
+            read.get(0, copied, 0, 100);
+            assertThat(copied).isEqualTo(expected);
+        }
+    }
+}
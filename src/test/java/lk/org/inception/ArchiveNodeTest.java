@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import java.util.zip.ZipEntry;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class ArchiveNodeTest {
 
@@ -52,4 +53,104 @@ class ArchiveNodeTest {
 
         assertThat(actualOutput).isEqualTo(expectedOutput);
     }
-}
\ No newline at end of file
+
+    @Test
+    void freeze_makesWholeTreeReadOnly_includingNestedArchives() {
+        // Arrange
+        ArchiveNode root = new ArchiveNode("/", null);
+        ArchiveNode nestedZipNode = new ArchiveNode("nested.zip", new ZipEntry("nested.zip"));
+        ArchiveNode nestedRoot = new ArchiveNode("/", null);
+        nestedRoot.getChildren().put("inner.txt", new ArchiveNode("inner.txt", new ZipEntry("inner.txt")));
+        nestedZipNode.setNestedArchiveRoot(nestedRoot);
+        root.getChildren().put("nested.zip", nestedZipNode);
+
+        // Act
+        root.freeze();
+
+        // Assert
+        assertThat(root.isFrozen()).isTrue();
+        assertThat(nestedRoot.isFrozen()).isTrue();
+        assertThatThrownBy(() -> root.getChildren().put("x", new ArchiveNode("x", null)))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> nestedRoot.getChildren().remove("inner.txt"))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> nestedZipNode.setNestedArchiveRoot(null))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(nestedZipNode.getNestedArchiveRoot().getChildren()).containsOnlyKeys("inner.txt");
+    }
+
+    @Test
+    void freeze_makesEntriesReadOnly_withoutTouchingTheOriginal() {
+        // Arrange
+        ZipEntry original = new ZipEntry("data.bin");
+        original.setSize(100);
+        original.setCrc(42);
+        original.setExtra(new byte[]{(byte) 0xCA, (byte) 0xFE, 0, 0});
+        ArchiveNode node = new ArchiveNode("data.bin", original);
+
+        // Act
+        node.freeze();
+
+        // Assert
+        ZipEntry frozen = node.getEntry();
+        assertThat(frozen).isNotSameAs(original).isSameAs(node.getEntry());
+        assertThat(frozen.getSize()).isEqualTo(100);
+        assertThat(frozen.getCrc()).isEqualTo(42);
+        assertThatThrownBy(() -> frozen.setSize(0)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> frozen.setTime(0)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> frozen.setComment("x")).isInstanceOf(IllegalStateException.class);
+        frozen.getExtra()[0] = 0;
+        assertThat(frozen.getExtra()[0]).isEqualTo((byte) 0xCA);
+        original.setSize(7);
+        assertThat(frozen.getSize()).isEqualTo(100);
+    }
+
+    @Test
+    void freeze_keepsEveryChildUnderItsKey_evenWhenTheKeyIsNotItsName() {
+        // Arrange: hand-built maps, small and wide, where one child is stored under an alias
+        ArchiveNode small = new ArchiveNode("/", null);
+        ArchiveNode wide = new ArchiveNode("/", null);
+        for (int i = 0; i < 20; i++) {
+            String name = "file-" + i + ".txt";
+            wide.getChildren().put(name, new ArchiveNode(name, null));
+        }
+        for (ArchiveNode root : new ArchiveNode[]{small, wide}) {
+            root.getChildren().put("alias", new ArchiveNode("real.txt", null));
+            root.getChildren().put("plain.txt", new ArchiveNode("plain.txt", null));
+        }
+
+        // Act
+        small.freeze();
+        wide.freeze();
+
+        // Assert
+        for (ArchiveNode root : new ArchiveNode[]{small, wide}) {
+            assertThat(root.getChildren().get("alias").getName()).isEqualTo("real.txt");
+            assertThat(root.getChildren().get("real.txt")).isNull();
+            assertThat(root.getChildren().get("plain.txt").getName()).isEqualTo("plain.txt");
+            assertThat(root.getChildren().keySet()).endsWith("alias", "plain.txt");
+        }
+        assertThat(wide.getChildren()).hasSize(22).containsKey("file-13.txt");
+    }
+
+    @Test
+    void freeze_keepsChildOrderAndLookups_forWideDirectories() {
+        // Arrange: enough children to switch the frozen map to its hashed index.
+        ArchiveNode root = new ArchiveNode("/", null);
+        for (int i = 0; i < 100; i++) {
+            String name = "file-" + i + ".txt";
+            root.getChildren().put(name, new ArchiveNode(name, new ZipEntry(name)));
+        }
+        String before = root.getTreeAsString();
+
+        // Act
+        root.freeze();
+
+        // Assert
+        assertThat(root.getTreeAsString()).isEqualTo(before);
+        assertThat(root.getChildren()).hasSize(100);
+        assertThat(root.getChildren().get("file-42.txt").getName()).isEqualTo("file-42.txt");
+        assertThat(root.getChildren().get("missing.txt")).isNull();
+        assertThat(root.getChildren().keySet()).startsWith("file-0.txt", "file-1.txt");
+    }
+}
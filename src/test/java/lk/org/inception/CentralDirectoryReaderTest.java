@@ -0,0 +1,244 @@
+package lk.org.inception;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CentralDirectoryReaderTest {
+
+    private Path tempZipFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempZipFile = Files.createTempFile("test-cen-", ".zip");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(tempZipFile);
+    }
+
+    @Test
+    void getNextEntry_matchesTheJdkAndTheLocalHeaders() throws IOException {
+        // Arrange: deflated entries with data descriptors, a directory and a stored entry
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry("docs/"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("docs/readme.txt"));
+            zos.write("hello, hello, hello".getBytes());
+            zos.closeEntry();
+            ZipEntry stored = new ZipEntry("data.bin");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(0);
+            stored.setCrc(0);
+            zos.putNextEntry(stored);
+            zos.closeEntry();
+        }
+
+        // Act
+        List<ZipEntry> entries = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(tempZipFile, StandardOpenOption.READ);
+             ArchiveBytes bytes = ArchiveBytes.map(channel)) {
+            CentralDirectoryReader reader = CentralDirectoryReader.open(bytes);
+            ZipEntry entry;
+            while ((entry = reader.getNextEntry()) != null) {
+                entries.add(entry);
+                offsets.add(reader.getLocalHeaderOffset());
+            }
+        }
+
+        // Assert
+        List<Long> streamedOffsets = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(tempZipFile);
+             ReaderContext context = new ReaderContext();
+             ZipStreamReader reader = new ZipStreamReader(in, context)) {
+            while (reader.getNextEntry() != null) {
+                streamedOffsets.add(reader.getLocalHeaderOffset());
+            }
+        }
+        assertThat(offsets).containsExactlyElementsOf(streamedOffsets).startsWith(0L);
+        try (ZipFile zipFile = new ZipFile(tempZipFile.toFile())) {
+            Enumeration<? extends ZipEntry> expected = zipFile.entries();
+            for (ZipEntry entry : entries) {
+                ZipEntry jdkEntry = expected.nextElement();
+                assertThat(entry.getName()).isEqualTo(jdkEntry.getName());
+                assertThat(entry.getSize()).isEqualTo(jdkEntry.getSize());
+                assertThat(entry.getCompressedSize()).isEqualTo(jdkEntry.getCompressedSize());
+                assertThat(entry.getCrc()).isEqualTo(jdkEntry.getCrc());
+                assertThat(entry.getMethod()).isEqualTo(jdkEntry.getMethod());
+                assertThat(entry.getTime()).isEqualTo(jdkEntry.getTime());
+            }
+            assertThat(expected.hasMoreElements()).isFalse();
+        }
+    }
+
+    @Test
+    void getNextEntry_withRepeatedAndChangingTimestamps_matchesTheJdkTimes() throws IOException {
+        // Arrange: runs of shared timestamps broken by other ones, so cached conversions are reused and replaced
+        LocalDateTime[] times = {
+                LocalDateTime.of(2021, 3, 14, 15, 9, 26),
+                LocalDateTime.of(2021, 3, 14, 15, 9, 26),
+                LocalDateTime.of(1999, 12, 31, 23, 59, 58),
+                LocalDateTime.of(2021, 3, 14, 15, 9, 26),
+                LocalDateTime.of(2107, 12, 31, 23, 59, 58)};
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            for (int i = 0; i < times.length; i++) {
+                ZipEntry entry = new ZipEntry("e" + i);
+                entry.setTimeLocal(times[i]);
+                zos.putNextEntry(entry);
+                zos.closeEntry();
+            }
+        }
+
+        // Act
+        List<ZipEntry> fromDirectory = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(tempZipFile, StandardOpenOption.READ);
+             ArchiveBytes bytes = ArchiveBytes.map(channel)) {
+            CentralDirectoryReader reader = CentralDirectoryReader.open(bytes);
+            ZipEntry entry;
+            while ((entry = reader.getNextEntry()) != null) {
+                fromDirectory.add(entry);
+            }
+        }
+        List<ZipEntry> fromStream = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(tempZipFile);
+             ReaderContext context = new ReaderContext();
+             ZipStreamReader reader = new ZipStreamReader(in, context)) {
+            ZipEntry entry;
+            while ((entry = reader.getNextEntry()) != null) {
+                fromStream.add(entry);
+            }
+        }
+
+        // Assert
+        try (ZipFile zipFile = new ZipFile(tempZipFile.toFile())) {
+            for (int i = 0; i < times.length; i++) {
+                ZipEntry jdkEntry = zipFile.getEntry("e" + i);
+                assertThat(fromDirectory.get(i).getTimeLocal()).isEqualTo(times[i]);
+                assertThat(fromDirectory.get(i).getTime()).isEqualTo(jdkEntry.getTime());
+                assertThat(fromStream.get(i).getTimeLocal()).isEqualTo(times[i]);
+                assertThat(fromStream.get(i).getTime()).isEqualTo(jdkEntry.getTime());
+            }
+        }
+    }
+
+    @Test
+    void open_withMoreThan65535Entries_readsTheZip64EndRecord() throws IOException {
+        // Arrange: ZipOutputStream switches to a Zip64 end record past 65,535 entries
+        int entryCount = 70_000;
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            for (int i = 0; i < entryCount; i++) {
+                zos.putNextEntry(new ZipEntry("e" + i));
+                zos.closeEntry();
+            }
+        }
+
+        // Act
+        int read = 0;
+        String last = null;
+        try (FileChannel channel = FileChannel.open(tempZipFile, StandardOpenOption.READ);
+             ArchiveBytes bytes = ArchiveBytes.map(channel)) {
+            CentralDirectoryReader reader = CentralDirectoryReader.open(bytes);
+            ZipEntry entry;
+            while ((entry = reader.getNextEntry()) != null) {
+                read++;
+                last = entry.getName();
+            }
+        }
+
+        // Assert
+        assertThat(read).isEqualTo(entryCount);
+        assertThat(last).isEqualTo("e69999");
+    }
+
+    @Test
+    void open_withZip64ExtraFields_readsSizesAndOffsets() throws IOException {
+        // Arrange: every size and the second local header offset live in Zip64 extra fields
+        SyntheticArchives.writeSparseZip64(tempZipFile, 100_000);
+
+        // Act: with 64 KB windows the entry data spans several of them
+        try (FileChannel channel = FileChannel.open(tempZipFile, StandardOpenOption.READ);
+             ArchiveBytes bytes = ArchiveBytes.map(channel, 16)) {
+            CentralDirectoryReader reader = CentralDirectoryReader.open(bytes);
+            ZipEntry huge = reader.getNextEntry();
+            long hugeData = reader.getDataOffset();
+            ZipEntry after = reader.getNextEntry();
+            long afterOffset = reader.getLocalHeaderOffset();
+
+            // Assert
+            assertThat(huge.getSize()).isEqualTo(100_000);
+            assertThat(huge.getCompressedSize()).isEqualTo(100_000);
+            assertThat(after.getName()).isEqualTo("after.txt");
+            assertThat(afterOffset).isEqualTo(hugeData + 100_000);
+            assertThat(reader.getNextEntry()).isNull();
+        }
+    }
+
+    @Test
+    void open_withPrependedData_shiftsEveryOffset() throws IOException {
+        // Arrange: a self-extracting style archive, with a stub in front of the ZIP data
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        baos.write(new byte[100]);
+        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
+            zos.putNextEntry(new ZipEntry("a.txt"));
+            zos.write("a".getBytes());
+            zos.closeEntry();
+        }
+        Files.write(tempZipFile, baos.toByteArray());
+
+        // Act
+        try (FileChannel channel = FileChannel.open(tempZipFile, StandardOpenOption.READ);
+             ArchiveBytes bytes = ArchiveBytes.map(channel)) {
+            CentralDirectoryReader reader = CentralDirectoryReader.open(bytes);
+            ZipEntry entry = reader.getNextEntry();
+
+            // Assert
+            assertThat(entry.getName()).isEqualTo("a.txt");
+            assertThat(reader.getLocalHeaderOffset()).isEqualTo(100);
+            assertThat(reader.getDataOffset()).isEqualTo(100 + 30 + "a.txt".length());
+        }
+    }
+
+    @Test
+    void open_withoutEndRecord_returnsNull() throws IOException {
+        // Arrange: an archive cut off before its central directory
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
+            zos.putNextEntry(new ZipEntry("a.txt"));
+            zos.write("a".getBytes());
+            zos.closeEntry();
+        }
+        byte[] whole = baos.toByteArray();
+        byte[] truncated = new byte[whole.length - 30];
+        System.arraycopy(whole, 0, truncated, 0, truncated.length);
+        Files.write(tempZipFile, truncated);
+
+        // Act & Assert
+        try (FileChannel channel = FileChannel.open(tempZipFile, StandardOpenOption.READ);
+             ArchiveBytes bytes = ArchiveBytes.map(channel)) {
+            assertThat(CentralDirectoryReader.open(bytes)).isNull();
+        }
+    }
+}
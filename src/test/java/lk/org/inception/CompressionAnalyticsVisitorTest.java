@@ -0,0 +1,171 @@
+package lk.org.inception;
+
+import lk.org.inception.visitors.CompressionAnalyticsVisitor;
+import lk.org.inception.visitors.CompressionReport;
+import lk.org.inception.visitors.CompressionStats;
+import lk.org.inception.visitors.TopEntries;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class CompressionAnalyticsVisitorTest {
+
+    private Path tempZipFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempZipFile = Files.createTempFile("test-analytics-", ".zip");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(tempZipFile);
+    }
+
+    @Test
+    void visit_groupsFilesByExtensionAndDirectory_andSkipsDirectoriesAndUnknownSizes() {
+        // Arrange
+        CompressionAnalyticsVisitor visitor = new CompressionAnalyticsVisitor();
+
+        // Act
+        visitor.visit(fileNode("photo.JPG", 1000, 990, ZipEntry.DEFLATED), "//media/photo.JPG");
+        visitor.visit(fileNode("notes.txt", 1000, 200, ZipEntry.DEFLATED), "//media/notes.txt");
+        visitor.visit(fileNode("raw.txt", 500, 500, ZipEntry.STORED), "//raw.txt");
+        visitor.visit(fileNode(".hidden", 10, 10, ZipEntry.STORED), "//.hidden");
+        visitor.visit(fileNode("streamed.txt", -1, -1, ZipEntry.DEFLATED), "//streamed.txt");
+        visitor.visit(new ArchiveNode("media", null), "//media");
+        CompressionReport report = visitor.getResult();
+
+        // Assert
+        CompressionStats totals = report.getTotals();
+        assertThat(totals.getEntries()).isEqualTo(4);
+        assertThat(totals.getSize()).isEqualTo(2510);
+        assertThat(totals.getCompressedSize()).isEqualTo(1700);
+        assertThat(totals.getDeflatedRatio()).isCloseTo(1190 / 2000.0, within(1e-9));
+        assertThat(report.getByExtension().getGroups()).containsOnlyKeys("jpg", "txt", CompressionReport.NO_EXTENSION);
+        assertThat(report.getByExtension().get("jpg").getRatio()).isCloseTo(0.99, within(1e-9));
+        assertThat(report.getByExtension().get("txt").getDeflatedRatio()).isCloseTo(0.2, within(1e-9));
+        assertThat(report.getByDirectory().getGroups()).containsOnlyKeys("//media", "/");
+        assertThat(report.getByDirectory().get("/").getEntries()).isEqualTo(2);
+        assertThat(report.getSizeHistogram().getTotalCount()).isEqualTo(4);
+    }
+
+    @Test
+    void visit_beyondMaxGroups_addsNewKeysToTheOverflowGroup() {
+        // Arrange
+        CompressionAnalyticsVisitor visitor = new CompressionAnalyticsVisitor(3, 2);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            String name = "file." + "ext" + i;
+            visitor.visit(fileNode(name, 100 + i, 50, ZipEntry.DEFLATED), "//dir" + i + "/" + name);
+        }
+        CompressionReport report = visitor.getResult();
+
+        // Assert: memory is bounded, yet nothing is lost from the totals
+        assertThat(report.getByExtension().getGroups()).hasSize(2);
+        assertThat(report.getByExtension().getOverflow().getEntries()).isEqualTo(8);
+        assertThat(report.getByDirectory().getGroups()).hasSize(2);
+        assertThat(report.getTotals().getEntries()).isEqualTo(10);
+        assertThat(report.getLargest().getEntries()).extracting(TopEntries.Entry::getPath)
+                .containsExactly("//dir9/file.ext9", "//dir8/file.ext8", "//dir7/file.ext7");
+    }
+
+    @Test
+    void merge_ofPartitions_matchesASinglePass() {
+        // Arrange: the same files, seen by one visitor and by three partitions
+        long[] sizes = new long[1_000];
+        Random random = new Random(7);
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = random.nextInt(1 << 20);
+        }
+        CompressionAnalyticsVisitor whole = new CompressionAnalyticsVisitor(5, 16);
+        CompressionAnalyticsVisitor[] partitions = {new CompressionAnalyticsVisitor(5, 16),
+                new CompressionAnalyticsVisitor(5, 16), new CompressionAnalyticsVisitor(5, 16)};
+
+        // Act
+        for (int i = 0; i < sizes.length; i++) {
+            String name = "f" + i + "." + (i % 4);
+            String path = "//d" + (i % 7) + "/" + name;
+            ArchiveNode node = fileNode(name, sizes[i], sizes[i] / 2, ZipEntry.DEFLATED);
+            whole.visit(node, path);
+            partitions[i % partitions.length].visit(node, path);
+        }
+        CompressionReport merged = partitions[0].getResult()
+                .merge(partitions[1].getResult())
+                .merge(partitions[2].getResult());
+
+        // Assert
+        CompressionReport expected = whole.getResult();
+        assertThat(merged.getTotals().toString()).isEqualTo(expected.getTotals().toString());
+        assertThat(merged.getByExtension().get("3").toString())
+                .isEqualTo(expected.getByExtension().get("3").toString());
+        assertThat(merged.getByDirectory().get("//d6").toString())
+                .isEqualTo(expected.getByDirectory().get("//d6").toString());
+        for (int bucket = 0; bucket < 64; bucket++) {
+            assertThat(merged.getSizeHistogram().getCount(bucket)).isEqualTo(expected.getSizeHistogram().getCount(bucket));
+        }
+        long[] sorted = sizes.clone();
+        Arrays.sort(sorted);
+        assertThat(merged.getLargest().getEntries()).extracting(TopEntries.Entry::getSize)
+                .containsExactly(sorted[999], sorted[998], sorted[997], sorted[996], sorted[995]);
+        assertThat(merged.getLargest().getEntries()).usingRecursiveFieldByFieldElementComparator()
+                .isEqualTo(expected.getLargest().getEntries());
+    }
+
+    @Test
+    void analyzeCompression_flagsIncompressibleContentStoredWithDeflate() throws IOException {
+        // Arrange: random bytes stand in for media; repetitive text compresses well
+        byte[] media = new byte[64 * 1024];
+        new Random(1).nextBytes(media);
+        byte[] text = new byte[64 * 1024];
+        Arrays.fill(text, (byte) 'a');
+        ByteArrayOutputStream nested = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(nested)) {
+            zos.putNextEntry(new ZipEntry("assets/clip.mp4"));
+            zos.write(media);
+            zos.closeEntry();
+        }
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry("readme.txt"));
+            zos.write(text);
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("bundle.zip"));
+            zos.write(nested.toByteArray());
+            zos.closeEntry();
+        }
+
+        // Act
+        CompressionReport report = EffectiveSpork.load(tempZipFile).analyzeCompression();
+
+        // Assert
+        assertThat(report.getByExtension().get("mp4").getDeflatedRatio()).isGreaterThan(0.99);
+        assertThat(report.getByExtension().get("txt").getDeflatedRatio()).isLessThan(0.01);
+        assertThat(report.getByDirectory().get("//bundle.zip/assets").getEntries()).isEqualTo(1);
+        assertThat(report.getLargest().getEntries().get(0).getPath()).isEqualTo("//bundle.zip");
+    }
+
+    private static ArchiveNode fileNode(String name, long size, long compressedSize, int method) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(method);
+        if (size >= 0) {
+            entry.setSize(size);
+            entry.setCompressedSize(compressedSize);
+        }
+        return new ArchiveNode(name, entry);
+    }
+}
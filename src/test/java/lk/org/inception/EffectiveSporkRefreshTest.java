@@ -0,0 +1,374 @@
+package lk.org.inception;
+
+import lk.org.inception.metrics.ArchiveMetrics;
+import lk.org.inception.metrics.MetricsListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EffectiveSporkRefreshTest {
+
+    /** A fixed entry time, so rewriting the same entries produces the same bytes. */
+    private static final long ENTRY_TIME = 1_600_000_000_000L;
+
+    private Path tempZipFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempZipFile = Files.createTempFile("test-refresh-", ".zip");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(tempZipFile);
+    }
+
+    @Test
+    void refresh_afterEntriesAreAppended_reusesUnchangedNestedArchives() throws IOException {
+        // Arrange
+        writeVersion(1, "a.txt", "alpha".getBytes(), "lib.zip", zipOf("lib/inner.txt", "inner"));
+        ParsedArchives parsed = new ParsedArchives();
+        EffectiveSpork original = EffectiveSpork.load(tempZipFile, LoadOptions.defaults().withMetricsListener(parsed));
+        writeVersion(2, "a.txt", "alpha".getBytes(), "lib.zip", zipOf("lib/inner.txt", "inner"),
+                "b.txt", "beta".getBytes(), "more.zip", zipOf("x.txt", "x"));
+        parsed.paths.clear();
+
+        // Act
+        EffectiveSpork refreshed = original.refresh();
+
+        // Assert: only the appended nested archive was parsed
+        assertThat(refreshed).isNotSameAs(original);
+        assertThat(parsed.paths).containsExactlyInAnyOrder("/", "more.zip");
+        assertThat(nestedRoot(refreshed, "lib.zip")).isSameAs(nestedRoot(original, "lib.zip"));
+        assertThat(refreshed.findFilesLargerThan(0)).containsExactly(
+                "//a.txt", "//lib.zip", "//lib.zip/lib/inner.txt", "//b.txt", "//more.zip", "//more.zip/x.txt");
+        assertThat(original.findFilesLargerThan(0)).containsExactly(
+                "//a.txt", "//lib.zip", "//lib.zip/lib/inner.txt");
+    }
+
+    @Test
+    void refresh_afterEntriesAreAppended_parsesOnlyTheNewRecords_andSharesUnchangedDirectories() throws IOException {
+        // Arrange
+        writeVersion(1, "docs/a.txt", "alpha".getBytes(), "keep/x.txt", "x".getBytes());
+        ParsedArchives parsed = new ParsedArchives();
+        EffectiveSpork original = EffectiveSpork.load(tempZipFile, LoadOptions.defaults().withMetricsListener(parsed));
+        writeVersion(2, "docs/a.txt", "alpha".getBytes(), "keep/x.txt", "x".getBytes(),
+                "docs/b.txt", "beta".getBytes(), "new/c.txt", "c".getBytes());
+        parsed.entries.clear();
+
+        // Act
+        EffectiveSpork refreshed = original.refresh();
+
+        // Assert
+        assertThat(parsed.entries).containsExactly(2);
+        ArchiveNode root = refreshed.getRootNode();
+        assertThat(root.getChildren().get("keep")).isSameAs(original.getRootNode().getChildren().get("keep"));
+        assertThat(root.getChildren().get("docs")).isNotSameAs(original.getRootNode().getChildren().get("docs"));
+        assertThat(refreshed.findFilesLargerThan(0)).containsExactly(
+                "//docs/a.txt", "//docs/b.txt", "//keep/x.txt", "//new/c.txt");
+        assertThat(original.findFilesLargerThan(0)).containsExactly("//docs/a.txt", "//keep/x.txt");
+        assertThat(root.getFingerprint()).isEqualTo(EffectiveSpork.load(tempZipFile).getRootNode().getFingerprint());
+    }
+
+    @Test
+    void refresh_whenRewrittenWithTheSameSizeAndTime_comparesTheCentralDirectory() throws IOException {
+        // Arrange: a comment pads the smaller version to the size of the first
+        writeVersion(1, "a.txt", "alpha".getBytes(), "b.txt", "beta".getBytes());
+        long size = Files.size(tempZipFile);
+        EffectiveSpork original = EffectiveSpork.load(tempZipFile);
+        writeVersion(1, "a.txt", "alpha".getBytes());
+        long shortfall = size - Files.size(tempZipFile);
+        writeVersionWithComment(1, new String(new char[(int) shortfall]).replace('\0', '#'),
+                "a.txt", "alpha".getBytes());
+        assertThat(Files.size(tempZipFile)).isEqualTo(size);
+
+        // Act
+        EffectiveSpork refreshed = original.refresh();
+
+        // Assert
+        assertThat(refreshed).isNotSameAs(original);
+        assertThat(refreshed.findFilesLargerThan(0)).containsExactly("//a.txt");
+    }
+
+    @Test
+    void refresh_whenOnlyTheContentChanges_withTheSameLengthAndTime_loadsTheNewContent() throws IOException {
+        // Arrange: same names, lengths and timestamps, so only the CRCs tell the versions apart
+        writeVersion(1, "a.txt", "alpha".getBytes(), "lib.zip", zipOf("inner.txt", "inner"));
+        EffectiveSpork original = EffectiveSpork.load(tempZipFile);
+        long size = Files.size(tempZipFile);
+        writeVersion(1, "a.txt", "omega".getBytes(), "lib.zip", zipOf("inner.txt", "outer"));
+        assertThat(Files.size(tempZipFile)).isEqualTo(size);
+
+        // Act
+        EffectiveSpork refreshed = original.refresh();
+
+        // Assert
+        assertThat(refreshed).isNotSameAs(original);
+        assertThat(refreshed.getRootNode().getChildren().get("a.txt").getEntry().getCrc())
+                .isNotEqualTo(original.getRootNode().getChildren().get("a.txt").getEntry().getCrc());
+        assertThat(nestedRoot(refreshed, "lib.zip").getChildren().get("inner.txt").getEntry().getCrc())
+                .isNotEqualTo(nestedRoot(original, "lib.zip").getChildren().get("inner.txt").getEntry().getCrc());
+        assertThat(refreshed.getRootNode().getFingerprint())
+                .isEqualTo(EffectiveSpork.load(tempZipFile).getRootNode().getFingerprint());
+    }
+
+    @Test
+    void refresh_whenANestedArchiveChanges_parsesItAgain() throws IOException {
+        // Arrange
+        writeVersion(1, "lib.zip", zipOf("inner.txt", "v1"), "app.zip", zipOf("main.txt", "main"));
+        EffectiveSpork original = EffectiveSpork.load(tempZipFile);
+        writeVersion(2, "lib.zip", zipOf("inner.txt", "v2"), "app.zip", zipOf("main.txt", "main"));
+
+        // Act
+        EffectiveSpork refreshed = original.refresh();
+
+        // Assert: lib.zip kept its size, so app.zip is still at the same offset and is reused
+        assertThat(nestedRoot(refreshed, "lib.zip")).isNotSameAs(nestedRoot(original, "lib.zip"));
+        assertThat(nestedRoot(refreshed, "app.zip")).isSameAs(nestedRoot(original, "app.zip"));
+        assertThat(nestedRoot(refreshed, "lib.zip").getChildren().get("inner.txt").getEntry().getCrc())
+                .isNotEqualTo(nestedRoot(original, "lib.zip").getChildren().get("inner.txt").getEntry().getCrc());
+    }
+
+    @Test
+    void refresh_whenTheFileIsUnchanged_returnsTheSameInstance() throws IOException {
+        // Arrange
+        writeVersion(1, "a.txt", "alpha".getBytes());
+        EffectiveSpork original = EffectiveSpork.load(tempZipFile);
+
+        // Act & Assert
+        assertThat(original.refresh()).isSameAs(original);
+    }
+
+    @Test
+    void refresh_ofFrozenTree_sharesNestedArchives_andDiffsAgainstTheOriginal() throws IOException {
+        // Arrange
+        writeVersion(1, "lib.zip", zipOf("lib/inner.txt", "inner"), "edit.txt", "before".getBytes());
+        EffectiveSpork original = EffectiveSpork.load(tempZipFile, LoadOptions.defaults().withFrozen(true));
+        writeVersion(2, "lib.zip", zipOf("lib/inner.txt", "inner"), "edit.txt", "after!".getBytes(),
+                "new.zip", zipOf("n.txt", "n"));
+
+        // Act
+        EffectiveSpork refreshed = original.refresh();
+        List<String> differences = new ArrayList<>();
+        original.diff(refreshed, (kind, path, oldNode, newNode) -> differences.add(kind + " " + path));
+
+        // Assert
+        assertThat(refreshed.getRootNode().isFrozen()).isTrue();
+        assertThat(nestedRoot(refreshed, "lib.zip")).isSameAs(nestedRoot(original, "lib.zip"));
+        assertThat(differences).containsExactlyInAnyOrder(
+                "CHANGED //edit.txt",
+                "ADDED //new.zip",
+                "ADDED //new.zip/n.txt");
+        List<String> reverse = new ArrayList<>();
+        refreshed.diff(EffectiveSpork.load(tempZipFile), (kind, path, oldNode, newNode) -> reverse.add(path));
+        assertThat(reverse).isEmpty();
+    }
+
+    @Test
+    void refresh_ofOffHeapTree_loadsAfresh() throws IOException {
+        // Arrange
+        writeVersion(1, "a.txt", "alpha".getBytes(), "b.txt", "beta".getBytes());
+        try (EffectiveSpork original = EffectiveSpork.load(tempZipFile,
+                LoadOptions.defaults().withStorage(LoadOptions.Storage.OFF_HEAP))) {
+            writeVersion(2, "a.txt", "ALPHA".getBytes(), "b.txt", "beta".getBytes(), "c.txt", "gamma".getBytes());
+
+            // Act
+            try (EffectiveSpork refreshed = original.refresh()) {
+
+                // Assert
+                assertThat(refreshed.findFilesLargerThan(0)).containsExactly("//a.txt", "//b.txt", "//c.txt");
+                assertThat(original.findFilesLargerThan(0)).containsExactly("//a.txt", "//b.txt");
+            }
+        }
+    }
+
+    @Test
+    void refresh_ofOffHeapTree_afterEntriesAreAppended_growsACopy() throws IOException {
+        // Arrange: "wide" has a child table that takes 4 more children in place, then has to be rebuilt
+        Object[] last = Arrays.copyOf(wideDirectory(40), 2 * 40 + 2);
+        last[80] = "lib.zip";
+        last[81] = zipOf("inner/n.txt", "n");
+        writeVersion(1, wideDirectory(12));
+        ParsedArchives parsed = new ParsedArchives();
+        LoadOptions offHeap = LoadOptions.defaults().withStorage(LoadOptions.Storage.OFF_HEAP);
+        try (EffectiveSpork original = EffectiveSpork.load(tempZipFile, offHeap.withMetricsListener(parsed))) {
+            writeVersion(2, wideDirectory(16));
+            parsed.entries.clear();
+
+            // Act
+            try (EffectiveSpork second = original.refresh()) {
+                writeVersion(3, last);
+                try (EffectiveSpork third = second.refresh();
+                     EffectiveSpork fresh = EffectiveSpork.load(tempZipFile, offHeap)) {
+
+                    // Assert
+                    assertThat(parsed.entries).containsExactly(4, 1, 25);
+                    assertThat(wideChildren(original)).hasSize(12);
+                    assertThat(wideChildren(second)).hasSize(16);
+                    Map<String, ArchiveNode> wide = wideChildren(third);
+                    assertThat(wide).hasSize(40);
+                    for (int i = 0; i < 40; i++) {
+                        assertThat(wide.get("file-" + i + ".txt")).isNotNull();
+                    }
+                    assertThat(third.getRootNode().getFingerprint()).isEqualTo(fresh.getRootNode().getFingerprint());
+                    assertThat(nestedRoot(third, "lib.zip").getChildren().get("inner").getChildren())
+                            .containsOnlyKeys("n.txt");
+                    List<String> differences = new ArrayList<>();
+                    original.diff(third, (kind, path, oldNode, newNode) -> differences.add(kind + " " + path));
+                    assertThat(differences).hasSize(28 + 3).allMatch(difference -> difference.startsWith("ADDED"));
+                }
+            }
+        }
+    }
+
+    @Test
+    void refresh_afterEntriesRepeatingEarlierPaths_growsTheSameTreeInEveryStorage() throws IOException {
+        // Arrange: appended entries replace a file, a directory and a child of "wide"'s table
+        Object[] first = Arrays.copyOf(wideDirectory(12), 2 * 12 + 6);
+        first[24] = "dir/x.txt";
+        first[25] = "x".getBytes();
+        first[26] = "swap/y.txt";
+        first[27] = "y".getBytes();
+        first[28] = "dup.txt";
+        first[29] = "dup".getBytes();
+        Object[] second = Arrays.copyOf(first, first.length + 10);
+        second[30] = "dir/";
+        second[31] = new byte[0];
+        second[32] = "/dup.txt";
+        second[33] = "longer dup".getBytes();
+        second[34] = "swap";
+        second[35] = "swap".getBytes();
+        second[36] = "swap/z.txt";
+        second[37] = "z".getBytes();
+        second[38] = "wide//file-3.txt";
+        second[39] = "replaced".getBytes();
+        writeVersion(1, first);
+        ParsedArchives parsed = new ParsedArchives();
+        try (EffectiveSpork heap = EffectiveSpork.load(tempZipFile, LoadOptions.defaults().withMetricsListener(parsed));
+             EffectiveSpork offHeap = EffectiveSpork.load(tempZipFile, LoadOptions.defaults()
+                     .withStorage(LoadOptions.Storage.OFF_HEAP).withMetricsListener(parsed))) {
+            writeVersion(2, second);
+            parsed.entries.clear();
+
+            // Act
+            try (EffectiveSpork heapRefreshed = heap.refresh();
+                 EffectiveSpork offHeapRefreshed = offHeap.refresh()) {
+
+                // Assert: both grew their trees from the appended records alone
+                assertThat(parsed.entries).containsExactly(5, 5);
+                EffectiveSpork fresh = EffectiveSpork.load(tempZipFile);
+                assertThat(heapRefreshed.getTreeAsString()).isEqualTo(fresh.getTreeAsString());
+                assertThat(offHeapRefreshed.getTreeAsString()).isEqualTo(fresh.getTreeAsString());
+                assertThat(offHeapRefreshed.findFilesLargerThan(0))
+                        .containsExactlyElementsOf(heapRefreshed.findFilesLargerThan(0))
+                        .containsExactlyElementsOf(fresh.findFilesLargerThan(0))
+                        .contains("//dir/x.txt", "//swap/z.txt", "//wide/file-3.txt")
+                        .doesNotContain("//swap/y.txt");
+                assertThat(wideChildren(offHeapRefreshed)).hasSize(12);
+                assertThat(wideChildren(offHeapRefreshed).get("file-3.txt").getEntry().getSize()).isEqualTo(8);
+                assertThat(offHeapRefreshed.getRootNode().getChildren().get("dup.txt").getEntry().getSize())
+                        .isEqualTo(10);
+                assertThat(heapRefreshed.getRootNode().getFingerprint())
+                        .isEqualTo(fresh.getRootNode().getFingerprint());
+                assertThat(offHeapRefreshed.getRootNode().getFingerprint())
+                        .isEqualTo(fresh.getRootNode().getFingerprint());
+            }
+        }
+    }
+
+    private static Map<String, ArchiveNode> wideChildren(EffectiveSpork spork) {
+        return spork.getRootNode().getChildren().get("wide").getChildren();
+    }
+
+    @Test
+    void refresh_ofArchiveNotLoadedFromAPath_throws() throws IOException {
+        // Arrange
+        writeVersion(1, "a.txt", "alpha".getBytes());
+        EffectiveSpork fromBytes = EffectiveSpork.load(Files.readAllBytes(tempZipFile));
+        EffectiveSpork fromStream;
+        try (InputStream in = Files.newInputStream(tempZipFile)) {
+            fromStream = EffectiveSpork.load(in);
+        }
+
+        // Act & Assert
+        assertThatThrownBy(fromBytes::refresh).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(fromStream::refresh).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static ArchiveNode nestedRoot(EffectiveSpork spork, String name) {
+        return spork.getRootNode().getChildren().get(name).getNestedArchiveRoot();
+    }
+
+    /**
+     * Rewrites the archive and gives it a distinct modification time, as an append a
+     * second or more later would.
+     */
+    private void writeVersion(int version, Object... namesAndContents) throws IOException {
+        writeVersionWithComment(version, null, namesAndContents);
+    }
+
+    private void writeVersionWithComment(int version, String comment, Object... namesAndContents)
+            throws IOException {
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.setComment(comment);
+            writeEntries(zos, namesAndContents);
+        }
+        Files.setLastModifiedTime(tempZipFile, FileTime.fromMillis(ENTRY_TIME + version * 60_000L));
+    }
+
+    private static Object[] wideDirectory(int files) {
+        Object[] namesAndContents = new Object[2 * files];
+        for (int i = 0; i < files; i++) {
+            namesAndContents[2 * i] = "wide/file-" + i + ".txt";
+            namesAndContents[2 * i + 1] = ("content " + i).getBytes();
+        }
+        return namesAndContents;
+    }
+
+    private static byte[] zipOf(String name, String content) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
+            writeEntries(zos, name, content.getBytes());
+        }
+        return baos.toByteArray();
+    }
+
+    private static void writeEntries(ZipOutputStream zos, Object... namesAndContents) throws IOException {
+        for (int i = 0; i < namesAndContents.length; i += 2) {
+            ZipEntry entry = new ZipEntry((String) namesAndContents[i]);
+            entry.setTime(ENTRY_TIME);
+            zos.putNextEntry(entry);
+            zos.write((byte[]) namesAndContents[i + 1]);
+            zos.closeEntry();
+        }
+    }
+
+    private static final class ParsedArchives implements MetricsListener {
+        final List<String> paths = new ArrayList<>();
+        final List<Integer> entries = new ArrayList<>();
+
+        @Override
+        public void archiveFinished(ArchiveMetrics metrics) {
+            paths.add(metrics.getPath());
+            entries.add(metrics.getEntries());
+        }
+    }
+}
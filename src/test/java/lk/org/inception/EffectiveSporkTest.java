@@ -3,10 +3,19 @@ package lk.org.inception;
 import org.junit.jupiter.api.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -153,4 +162,187 @@ class EffectiveSporkTest {
         }
         return tempFile;
     }
-}
\ No newline at end of file
+
+    @Test
+    void load_withFrozenOptions_servesConcurrentQueriesFromOneInstance() throws Exception {
+        // Arrange
+        Path testZip = createComplexTestZip();
+        EffectiveSpork spork = EffectiveSpork.load(testZip, LoadOptions.defaults().withFrozen(true));
+        assertThat(spork.getRootNode().isFrozen()).isTrue();
+
+        // Act: many threads query the same instance at once.
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<List<String>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 64; i++) {
+                results.add(pool.submit(spork::findEmptyDirectories));
+            }
+
+            // Assert
+            for (Future<List<String>> result : results) {
+                assertThat(result.get()).containsExactlyInAnyOrder(
+                        "//empty_outer",
+                        "//nested.zip/inner_empty",
+                        "//nested.zip/deep.zip/deep_empty"
+                );
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // Cleanup
+        Files.delete(testZip);
+    }
+
+    @Test
+    void load_fromEverySource_buildsTheSameTree() throws IOException {
+        // Arrange: stored nested archives larger than the windows a plain channel is read through
+        Path testZip = Files.createTempFile("test-spork-", ".zip");
+        SyntheticArchives.write(testZip, SyntheticArchives.Shape.NESTED, SyntheticArchives.Compression.STORED, 5_000, 3L);
+        byte[] zipBytes = Files.readAllBytes(testZip);
+        EffectiveSpork expected = EffectiveSpork.load(testZip);
+
+        // Act
+        List<EffectiveSpork> loaded = new ArrayList<>();
+        loaded.add(EffectiveSpork.load(zipBytes));
+        ByteBuffer direct = ByteBuffer.allocateDirect(zipBytes.length + 10);
+        direct.position(10);
+        direct.put(zipBytes);
+        direct.position(10);
+        loaded.add(EffectiveSpork.load(direct));
+        try (FileChannel channel = FileChannel.open(testZip, StandardOpenOption.READ)) {
+            loaded.add(EffectiveSpork.load(new NonFileChannel(channel)));
+            loaded.add(EffectiveSpork.load(channel, LoadOptions.defaults().withFrozen(true)));
+        }
+        try (InputStream in = Files.newInputStream(testZip)) {
+            loaded.add(EffectiveSpork.load(in));
+        }
+
+        // Assert
+        assertThat(direct.position()).isEqualTo(10);
+        long expectedOffset = nestedGroup(expected).getLocalHeaderOffset();
+        for (EffectiveSpork spork : loaded) {
+            assertThat(spork.getTreeAsString()).isEqualTo(expected.getTreeAsString());
+            assertThat(spork.findFilesLargerThan(1_000)).isEqualTo(expected.findFilesLargerThan(1_000));
+            assertThat(nestedGroup(spork).getLocalHeaderOffset()).isEqualTo(expectedOffset);
+        }
+
+        // Cleanup
+        Files.delete(testZip);
+    }
+
+    @Test
+    void load_fromBytes_offHeap_answersQueries() throws IOException {
+        // Arrange
+        Path testZip = createComplexTestZip();
+        byte[] zipBytes = Files.readAllBytes(testZip);
+
+        // Act
+        try (EffectiveSpork spork = EffectiveSpork.load(zipBytes,
+                LoadOptions.defaults().withStorage(LoadOptions.Storage.OFF_HEAP))) {
+
+            // Assert
+            assertThat(spork.findEmptyDirectories()).containsExactlyInAnyOrder(
+                    "//empty_outer",
+                    "//nested.zip/inner_empty",
+                    "//nested.zip/deep.zip/deep_empty"
+            );
+        }
+
+        // Cleanup
+        Files.delete(testZip);
+    }
+
+    @Test
+    void load_withTreeExclude_leavesNoEmptyDirectoryBehind() throws IOException {
+        // Arrange
+        Path testZip = createComplexTestZip();
+        EntryFilter filter = EntryFilter.all().withExcludes("empty_outer/**", "nested.zip/inner_empty/**");
+
+        // Act
+        EffectiveSpork spork = EffectiveSpork.load(testZip, LoadOptions.defaults().withFilter(filter));
+
+        // Assert
+        assertThat(spork.findEmptyDirectories()).containsExactly("//nested.zip/deep.zip/deep_empty");
+
+        // Cleanup
+        Files.delete(testZip);
+    }
+
+    @Test
+    void load_withTreeExcludeOfANestedArchive_keepsItsNodeWithoutParsingIt() throws IOException {
+        // Arrange
+        Path testZip = createComplexTestZip();
+        EntryFilter filter = EntryFilter.all().withExcludes("nested.zip/deep.zip/**");
+
+        // Act
+        EffectiveSpork spork = EffectiveSpork.load(testZip, LoadOptions.defaults().withFilter(filter));
+
+        // Assert
+        ArchiveNode nested = spork.getRootNode().getChildren().get("nested.zip").getNestedArchiveRoot();
+        ArchiveNode deep = nested.getChildren().get("deep.zip");
+        assertThat(deep).isNotNull();
+        assertThat(deep.getEntry().getName()).isEqualTo("deep.zip");
+        assertThat(deep.getNestedArchiveRoot()).isNull();
+
+        // Cleanup
+        Files.delete(testZip);
+    }
+
+    private static ArchiveNode nestedGroup(EffectiveSpork spork) {
+        return spork.getRootNode().getChildren().get("nested").getChildren().get("group-49.zip");
+    }
+
+    /**
+     * Hides that a channel is a FileChannel, as the channels of object-storage SDKs would.
+     */
+    private static final class NonFileChannel implements SeekableByteChannel {
+        private final SeekableByteChannel delegate;
+
+        NonFileChannel(SeekableByteChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package lk.org.inception;
+
+import org.junit.jupiter.api.Test;
+import java.util.zip.ZipEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntryFilterTest {
+
+    @Test
+    void accept_matchesGlobsSegmentAware() {
+        EntryFilter filter = EntryFilter.all().withIncludes("**/*.jar", "META-INF/**");
+
+        assertThat(filter.accept("app.jar", file("app.jar", 10))).isTrue();
+        assertThat(filter.accept("lib/deep/app.jar", file("app.jar", 10))).isTrue();
+        assertThat(filter.accept("META-INF/MANIFEST.MF", file("MANIFEST.MF", 10))).isTrue();
+        assertThat(filter.accept("lib/app.jar.txt", file("app.jar.txt", 10))).isFalse();
+        assertThat(filter.accept("docs/META-INF/x", file("x", 10))).isFalse();
+    }
+
+    @Test
+    void accept_appliesExcludesSizeAndMethod() {
+        EntryFilter filter = EntryFilter.all()
+                .withExcludes("**/*.tmp")
+                .withSizeBetween(10, 100)
+                .withMethods(ZipEntry.DEFLATED);
+
+        assertThat(filter.accept("a.txt", file("a.txt", 50))).isTrue();
+        assertThat(filter.accept("a.tmp", file("a.tmp", 50))).isFalse();
+        assertThat(filter.accept("small.txt", file("small.txt", 5))).isFalse();
+        assertThat(filter.accept("big.txt", file("big.txt", 500))).isFalse();
+
+        ZipEntry stored = file("stored.txt", 50);
+        stored.setMethod(ZipEntry.STORED);
+        assertThat(filter.accept("stored.txt", stored)).isFalse();
+    }
+
+    @Test
+    void accept_withTreeExclude_dropsTheDirectoryEntryItself() {
+        EntryFilter filter = EntryFilter.all().withExcludes("dir/**");
+
+        assertThat(filter.accept("dir/x", file("x", 10))).isFalse();
+        assertThat(filter.accept("dir", new ZipEntry("dir/"))).isFalse();
+        assertThat(filter.accept("dir", file("dir", 10))).isTrue();
+        assertThat(filter.accept("dirt", new ZipEntry("dirt/"))).isTrue();
+    }
+
+    @Test
+    void accept_withTreeExcludeOfANestedArchive_keepsTheArchiveButNotItsEntries() {
+        EntryFilter filter = EntryFilter.all().withExcludes("x.zip/**", "lib/y.zip/**");
+
+        assertThat(filter.accept("x.zip", file("x.zip", 10))).isTrue();
+        assertThat(filter.accept("lib/y.zip", file("y.zip", 10))).isTrue();
+        assertThat(filter.accept("x.zip/inner.txt", file("inner.txt", 10))).isFalse();
+        assertThat(filter.accept("x.zip/docs", new ZipEntry("docs/"))).isFalse();
+        assertThat(filter.mayContainMatches("x.zip")).isFalse();
+        assertThat(filter.mayContainMatches("lib/y.zip")).isFalse();
+        assertThat(filter.mayContainMatches("lib/z.zip")).isTrue();
+    }
+
+    @Test
+    void mayContainMatches_prunesArchivesThatCannotHoldMatches() {
+        EntryFilter filter = EntryFilter.all().withIncludes("META-INF/**", "lib/*.zip", "lib/app.zip/classes/**");
+
+        assertThat(filter.mayContainMatches("lib/app.zip")).isTrue();
+        assertThat(filter.mayContainMatches("lib/other.zip")).isFalse();
+        assertThat(filter.mayContainMatches("data.zip")).isFalse();
+        assertThat(EntryFilter.all().withIncludes("**/*.class").mayContainMatches("any/where.zip")).isTrue();
+        assertThat(EntryFilter.all().withExcludes("vendor/**").mayContainMatches("vendor/x/y.zip")).isFalse();
+        assertThat(EntryFilter.all().withExcludes("vendor/**").mayContainMatches("lib/y.zip")).isTrue();
+    }
+
+    @Test
+    void acceptsAll_onlyForTheDefaultFilter() {
+        assertThat(EntryFilter.all().acceptsAll()).isTrue();
+        assertThat(EntryFilter.all().withIncludes("**").acceptsAll()).isFalse();
+    }
+
+    private static ZipEntry file(String name, long size) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.DEFLATED);
+        entry.setSize(size);
+        return entry;
+    }
+}
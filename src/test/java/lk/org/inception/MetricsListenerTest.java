@@ -0,0 +1,158 @@
+package lk.org.inception;
+
+import lk.org.inception.metrics.ArchiveMetrics;
+import lk.org.inception.metrics.JfrMetricsListener;
+import lk.org.inception.metrics.LoadMetrics;
+import lk.org.inception.metrics.MetricsListener;
+import lk.org.inception.visitors.FindFilesLargerThanVisitor;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsListenerTest {
+
+    private Path tempZipFile;
+    private Path recordingFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempZipFile = Files.createTempFile("metrics-", ".zip");
+        recordingFile = Files.createTempFile("metrics-", ".jfr");
+        writeNestedArchive(tempZipFile);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(tempZipFile);
+        Files.deleteIfExists(recordingFile);
+    }
+
+    @Test
+    void load_withListener_reportsEveryArchiveLevel() throws IOException {
+        // Arrange
+        RecordingListener listener = new RecordingListener();
+
+        // Act
+        EffectiveSpork.load(tempZipFile, LoadOptions.defaults().withMetricsListener(listener));
+
+        // Assert: archives finish innermost first, each with its own entries
+        assertThat(listener.events).containsExactly(
+                "loadStarted", "archiveStarted / 0", "archiveStarted lib/inner.zip 1",
+                "archiveFinished lib/inner.zip 1", "archiveFinished / 0", "loadFinished");
+        ArchiveMetrics inner = listener.archives.get(0);
+        assertThat(inner.getEntries()).isEqualTo(2);
+        assertThat(inner.getBytesInflated()).isEqualTo(2 * 1000);
+        ArchiveMetrics outer = listener.archives.get(1);
+        assertThat(outer.getEntries()).isEqualTo(2);
+        // The outer archive is indexed from its central directory, so its file data is never read.
+        assertThat(outer.getBytesRead()).isPositive().isLessThan(Files.size(tempZipFile));
+    }
+
+    @Test
+    void load_withListener_reportsLoadTotals() throws IOException {
+        // Arrange
+        RecordingListener listener = new RecordingListener();
+
+        // Act
+        EffectiveSpork.load(tempZipFile, LoadOptions.defaults().withMetricsListener(listener));
+
+        // Assert: two archive roots, "lib", "lib/inner.zip", "readme.txt" and the two inner files
+        LoadMetrics load = listener.load;
+        assertThat(load.getSource()).isEqualTo(tempZipFile.toString());
+        assertThat(load.getEntries()).isEqualTo(4);
+        assertThat(load.getNodesCreated()).isEqualTo(7);
+        assertThat(load.getMaxDepth()).isEqualTo(1);
+        assertThat(load.getBytesRead()).isPositive().isLessThan(Files.size(tempZipFile));
+        assertThat(load.getNanosAtDepth(0) + load.getNanosAtDepth(1)).isLessThanOrEqualTo(load.getNanos());
+    }
+
+    @Test
+    void load_offHeapWithListener_countsTheSameNodes() throws IOException {
+        // Arrange
+        RecordingListener listener = new RecordingListener();
+
+        // Act
+        EffectiveSpork spork = EffectiveSpork.load(tempZipFile, LoadOptions.defaults()
+                .withStorage(LoadOptions.Storage.OFF_HEAP).withMetricsListener(listener));
+        spork.close();
+
+        // Assert
+        assertThat(listener.load.getNodesCreated()).isEqualTo(7);
+    }
+
+    @Test
+    void process_withListener_reportsVisitorPass() throws IOException {
+        // Arrange
+        RecordingListener listener = new RecordingListener();
+        EffectiveSpork spork = EffectiveSpork.load(tempZipFile, LoadOptions.defaults().withMetricsListener(listener));
+        listener.events.clear();
+
+        // Act
+        spork.process(new FindFilesLargerThanVisitor(0));
+
+        // Assert: "/", "lib", "lib/inner.zip", its two files and "readme.txt"
+        assertThat(listener.events).containsExactly("visitorPassStarted 1", "visitorPassFinished 6");
+    }
+
+    @Test
+    void jfrListener_emitsEventsIntoRecording() throws IOException {
+        // Arrange
+        MetricsListener listener = JfrMetricsListener.create();
+        assertThat(JfrMetricsListener.isAvailable()).isTrue();
+
+        // Act
+        try (Recording recording = new Recording()) {
+            recording.enable("lk.org.inception.ArchiveLoad");
+            recording.enable("lk.org.inception.NestedArchive");
+            recording.enable("lk.org.inception.VisitorPass");
+            recording.start();
+            EffectiveSpork spork = EffectiveSpork.load(tempZipFile, LoadOptions.defaults().withMetricsListener(listener));
+            spork.process(new FindFilesLargerThanVisitor(0));
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        // Assert
+        List<String> names = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+            names.add(event.getEventType().getName());
+        }
+        assertThat(names).containsExactlyInAnyOrder("lk.org.inception.ArchiveLoad",
+                "lk.org.inception.NestedArchive", "lk.org.inception.NestedArchive", "lk.org.inception.VisitorPass");
+    }
+
+    private static void writeNestedArchive(Path target) throws IOException {
+        ByteArrayOutputStream inner = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(inner)) {
+            for (String name : new String[]{"a.txt", "b.txt"}) {
+                zos.putNextEntry(new ZipEntry(name));
+                zos.write(new byte[1000]);
+                zos.closeEntry();
+            }
+        }
+        try (OutputStream os = Files.newOutputStream(target);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry("lib/inner.zip"));
+            zos.write(inner.toByteArray());
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("readme.txt"));
+            zos.write("hello".getBytes());
+            zos.closeEntry();
+        }
+    }
+}
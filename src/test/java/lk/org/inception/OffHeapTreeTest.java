@@ -0,0 +1,304 @@
+package lk.org.inception;
+
+import lk.org.inception.visitors.FindFilesLargerThanVisitor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OffHeapTreeTest {
+
+    private Path tempZipFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempZipFile = Files.createTempFile("test-offheap-", ".zip");
+        ByteArrayOutputStream nestedBaos = new ByteArrayOutputStream();
+        try (ZipOutputStream nestedZos = new ZipOutputStream(nestedBaos)) {
+            nestedZos.putNextEntry(new ZipEntry("inner_empty/"));
+            nestedZos.closeEntry();
+            nestedZos.putNextEntry(new ZipEntry("docs/inner.txt"));
+            nestedZos.write(new byte[300]);
+            nestedZos.closeEntry();
+        }
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry("empty_outer/"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("dir/empty.txt"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("dir/data.txt"));
+            zos.write(new byte[200]);
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("nested.zip"));
+            zos.write(nestedBaos.toByteArray());
+            zos.closeEntry();
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(tempZipFile);
+    }
+
+    @Test
+    void load_offHeap_answersQueriesLikeTheHeapTree() throws IOException {
+        EffectiveSpork heap = EffectiveSpork.load(tempZipFile);
+
+        for (LoadOptions.Storage storage : new LoadOptions.Storage[]{LoadOptions.Storage.OFF_HEAP, LoadOptions.Storage.MAPPED_FILE}) {
+            try (EffectiveSpork offHeap = EffectiveSpork.load(tempZipFile, LoadOptions.defaults().withStorage(storage))) {
+                assertThat(offHeap.getTreeAsString()).isEqualTo(heap.getTreeAsString());
+                assertThat(offHeap.findEmptyDirectories()).containsExactlyElementsOf(heap.findEmptyDirectories());
+                assertThat(offHeap.findEmptyFiles()).containsExactlyElementsOf(heap.findEmptyFiles());
+                assertThat(offHeap.findFilesLargerThan(250)).containsExactly(
+                        "//nested.zip", "//nested.zip/docs/inner.txt");
+                ArchiveNode nested = offHeap.getRootNode().getChildren().get("nested.zip");
+                assertThat(nested.getLocalHeaderOffset())
+                        .isEqualTo(heap.getRootNode().getChildren().get("nested.zip").getLocalHeaderOffset())
+                        .isPositive();
+                assertThat(nested.getNestedArchiveRoot().getLocalHeaderOffset()).isEqualTo(-1);
+            }
+        }
+    }
+
+    @Test
+    void load_withRepeatedPaths_buildsTheSameTreeInEveryStorage() throws IOException {
+        // Arrange: the name variants get past ZipOutputStream's duplicate check
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            for (int i = 0; i < 10; i++) {
+                zos.putNextEntry(new ZipEntry("wide/f" + i));
+                zos.write(i);
+                zos.closeEntry();
+            }
+            String[] names = {"dir/x.txt", "dup.txt", "swap/y.txt", "dir/", "/dup.txt", "swap", "swap/z.txt",
+                    "wide//f3", "small/a", "small/b", "small//a"};
+            for (int i = 0; i < names.length; i++) {
+                zos.putNextEntry(new ZipEntry(names[i]));
+                if (!names[i].endsWith("/")) {
+                    zos.write(new byte[10 + i]);
+                }
+                zos.closeEntry();
+            }
+        }
+        EffectiveSpork heap = EffectiveSpork.load(tempZipFile);
+
+        for (LoadOptions.Storage storage : LoadOptions.Storage.values()) {
+            // Act
+            try (EffectiveSpork other = EffectiveSpork.load(tempZipFile, LoadOptions.defaults().withStorage(storage))) {
+
+                // Assert: later entries replace earlier ones, a directory entry keeps the children
+                assertThat(other.getTreeAsString()).as(storage.name()).isEqualTo(heap.getTreeAsString());
+                assertThat(other.findFilesLargerThan(0)).as(storage.name()).containsExactly(
+                        "//wide/f0", "//wide/f1", "//wide/f2", "//wide/f4", "//wide/f5", "//wide/f6",
+                        "//wide/f7", "//wide/f8", "//wide/f9", "//wide/f3", "//dir/x.txt", "//dup.txt",
+                        "//swap/z.txt", "//small/b", "//small/a");
+                ArchiveNode root = other.getRootNode();
+                assertThat(root.getChildren().get("dup.txt").getEntry().getSize()).isEqualTo(14);
+                assertThat(root.getChildren().get("dir").getEntry().isDirectory()).isTrue();
+                assertThat(root.getChildren().get("swap").getEntry()).isNull();
+                assertThat(root.getChildren().get("wide").getChildren()).hasSize(10);
+                assertThat(root.getFingerprint()).isEqualTo(heap.getRootNode().getFingerprint());
+            }
+        }
+    }
+
+    @Test
+    void load_offHeap_rebuildsEntriesAndSupportsLookups() throws IOException {
+        try (EffectiveSpork spork = EffectiveSpork.load(tempZipFile,
+                LoadOptions.defaults().withStorage(LoadOptions.Storage.OFF_HEAP))) {
+            ArchiveNode root = spork.getRootNode();
+            ArchiveNode nested = root.getChildren().get("nested.zip");
+            ArchiveNode inner = nested.getNestedArchiveRoot().getChildren().get("docs").getChildren().get("inner.txt");
+
+            assertThat(root.getChildren()).containsOnlyKeys("empty_outer", "dir", "nested.zip");
+            assertThat(root.getChildren().get("missing")).isNull();
+            assertThat(inner.getEntry().getName()).isEqualTo("docs/inner.txt");
+            assertThat(inner.getEntry().getSize()).isEqualTo(300);
+            assertThat(inner.getEntry().getMethod()).isEqualTo(ZipEntry.DEFLATED);
+            assertThat(root.getChildren().get("empty_outer").getEntry().isDirectory()).isTrue();
+            assertThat(root.isFrozen()).isTrue();
+            assertThatThrownBy(() -> nested.setNestedArchiveRoot(null)).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void load_offHeap_keepsNodeDataOutOfTheHeap() throws IOException {
+        // Arrange: a few thousand entries.
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            for (int i = 0; i < 5000; i++) {
+                zos.putNextEntry(new ZipEntry("dir-" + (i % 50) + "/file-" + i + ".txt"));
+                zos.closeEntry();
+            }
+        }
+
+        try (EffectiveSpork heap = EffectiveSpork.load(tempZipFile);
+             EffectiveSpork offHeap = EffectiveSpork.load(tempZipFile,
+                     LoadOptions.defaults().withStorage(LoadOptions.Storage.OFF_HEAP))) {
+            long heapBytes = GraphLayout.parseInstance(heap).totalSize();
+            long offHeapBytes = GraphLayout.parseInstance(offHeap).totalSize();
+            System.out.printf("[JOL] 5000 entries: heap tree %d bytes, off-heap tree %d bytes on heap%n",
+                    heapBytes, offHeapBytes);
+
+            // Assert: the off-heap variant retains only a few buffer objects.
+            assertThat(offHeapBytes).isLessThan(4 * 1024L);
+            assertThat(offHeap.findEmptyFiles()).hasSize(5000);
+        }
+    }
+
+    @Test
+    void getChildren_inWideDirectories_findsEveryChildByName() throws IOException {
+        // Arrange: one directory far above the indexing threshold, and one below it
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            for (int i = 0; i < 3000; i++) {
+                zos.putNextEntry(new ZipEntry("wide/file-" + i + ".txt"));
+                zos.closeEntry();
+            }
+            zos.putNextEntry(new ZipEntry("narrow/only.txt"));
+            zos.closeEntry();
+        }
+
+        try (EffectiveSpork offHeap = EffectiveSpork.load(tempZipFile,
+                LoadOptions.defaults().withStorage(LoadOptions.Storage.OFF_HEAP))) {
+            // Act
+            Map<String, ArchiveNode> wide = offHeap.getRootNode().getChildren().get("wide").getChildren();
+            Map<String, ArchiveNode> narrow = offHeap.getRootNode().getChildren().get("narrow").getChildren();
+
+            // Assert
+            assertThat(wide).hasSize(3000);
+            for (int i = 0; i < 3000; i++) {
+                assertThat(wide.get("file-" + i + ".txt").getName()).isEqualTo("file-" + i + ".txt");
+            }
+            assertThat(wide.get("file-3000.txt")).isNull();
+            assertThat(wide.containsKey("only.txt")).isFalse();
+            assertThat(narrow).hasSize(1).containsKey("only.txt");
+        }
+    }
+
+    @Test
+    void close_makesTheTreeUnusable() throws IOException {
+        EffectiveSpork spork = EffectiveSpork.load(tempZipFile,
+                LoadOptions.defaults().withStorage(LoadOptions.Storage.MAPPED_FILE));
+        ArchiveNode root = spork.getRootNode();
+
+        spork.close();
+
+        assertThatThrownBy(root::getTreeAsString).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void load_mappedToFile_leavesNoFileBehind() throws IOException {
+        // Arrange
+        Path tempDir = Paths.get(System.getProperty("java.io.tmpdir"));
+        long filesBefore = countTreeFiles(tempDir);
+
+        // Act
+        try (EffectiveSpork spork = EffectiveSpork.load(tempZipFile,
+                LoadOptions.defaults().withStorage(LoadOptions.Storage.MAPPED_FILE))) {
+
+            // Assert
+            assertThat(spork.getRootNode().getChildren()).isNotEmpty();
+            assertThat(countTreeFiles(tempDir)).isEqualTo(filesBefore);
+        }
+    }
+
+    @Test
+    void close_whileAnotherThreadQueries_failsTheQueryCleanly() throws Exception {
+        // Arrange
+        EffectiveSpork spork = EffectiveSpork.load(tempZipFile,
+                LoadOptions.defaults().withStorage(LoadOptions.Storage.OFF_HEAP));
+        ArchiveNode root = spork.getRootNode();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            started.countDown();
+            try {
+                while (true) {
+                    root.getTreeAsString();
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+        started.await();
+
+        // Act
+        spork.close();
+        reader.join(10_000);
+
+        // Assert
+        assertThat(reader.isAlive()).isFalse();
+        assertThat(failure.get()).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void close_freesTheDirectMemoryWithoutWaitingForTheGc() throws IOException {
+        // Arrange
+        BufferPoolMXBean direct = bufferPool("direct");
+        EffectiveSpork spork = EffectiveSpork.load(tempZipFile,
+                LoadOptions.defaults().withStorage(LoadOptions.Storage.OFF_HEAP));
+        long loaded = direct.getMemoryUsed();
+
+        // Act: the spork stays reachable, so only close can have freed anything
+        spork.close();
+
+        // Assert: at least one record chunk and one name chunk are gone
+        assertThat(direct.getMemoryUsed()).isLessThanOrEqualTo(loaded - (6L << 20) - (4L << 20));
+        assertThat(spork.getRootNode()).isNotNull();
+    }
+
+    @Test
+    void close_unmapsTheBackingFileWithoutWaitingForTheGc() throws IOException {
+        // Arrange
+        BufferPoolMXBean mapped = bufferPool("mapped");
+        EffectiveSpork spork = EffectiveSpork.load(tempZipFile,
+                LoadOptions.defaults().withStorage(LoadOptions.Storage.MAPPED_FILE));
+        long mappings = mapped.getCount();
+        long mappedBytes = mapped.getMemoryUsed();
+
+        // Act
+        spork.close();
+
+        // Assert
+        assertThat(mapped.getCount()).isLessThanOrEqualTo(mappings - 2);
+        assertThat(mapped.getMemoryUsed()).isLessThanOrEqualTo(mappedBytes - (6L << 20) - (4L << 20));
+        assertThat(spork.getRootNode()).isNotNull();
+    }
+
+    private static BufferPoolMXBean bufferPool(String name) {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals(name))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    private static long countTreeFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith("effective-spork-") && name.endsWith(".tree");
+            }).count();
+        }
+    }
+}
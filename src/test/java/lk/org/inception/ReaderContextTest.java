@@ -0,0 +1,153 @@
+package lk.org.inception;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReaderContextTest {
+
+    private Path tempZipFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempZipFile = Files.createTempFile("test-context-", ".zip");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(tempZipFile);
+    }
+
+    @Test
+    void buildTree_withManySiblingNestedZips_reusesInflatersAndBuffers() throws IOException {
+        // Arrange: 200 nested zips side by side, each holding one deflated file.
+        byte[] innerZipBytes = zipOf("inner.txt", new byte[4096]);
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            for (int i = 0; i < 200; i++) {
+                zos.putNextEntry(new ZipEntry("lib/nested-" + i + ".zip"));
+                zos.write(innerZipBytes);
+                zos.closeEntry();
+            }
+        }
+
+        // Act
+        ArchiveNode root;
+        try (ReaderContext context = new ReaderContext()) {
+            root = new ZipTreeBuilder(context).buildTree(tempZipFile);
+
+            // Assert: one Inflater per nesting level, not one per archive, and the same three
+            // buffers (compressed input, reader buffer, drain buffer) reused by every nested zip.
+            assertThat(context.getInflatersCreated()).isEqualTo(2);
+            assertThat(context.getBuffersCreated()).isEqualTo(3);
+        }
+        assertThat(root.getChildren().get("lib").getChildren()).hasSize(200);
+        ArchiveNode last = root.getChildren().get("lib").getChildren().get("nested-199.zip");
+        assertThat(last.getNestedArchiveRoot().getChildren().get("inner.txt").getEntry().getSize()).isEqualTo(4096);
+    }
+
+    @Test
+    void buildTree_withSharedContext_reusesPoolAcrossLoads() throws IOException {
+        try (OutputStream os = Files.newOutputStream(tempZipFile)) {
+            os.write(zipOf("nested.zip", zipOf("a.txt", new byte[10])));
+        }
+
+        try (ReaderContext context = new ReaderContext()) {
+            ZipTreeBuilder builder = new ZipTreeBuilder(context);
+            builder.buildTree(tempZipFile);
+            builder.buildTree(tempZipFile);
+            builder.buildTree(tempZipFile);
+
+            assertThat(context.getInflatersCreated()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void buildTree_withStoredEntries_readsSizesAndNestedArchives() throws IOException {
+        // Arrange: a STORED nested zip next to a STORED text file.
+        byte[] innerZipBytes = zipOf("inner.txt", "hello".getBytes());
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(storedEntry("nested.zip", innerZipBytes));
+            zos.write(innerZipBytes);
+            zos.closeEntry();
+            byte[] text = "stored content".getBytes();
+            zos.putNextEntry(storedEntry("plain.txt", text));
+            zos.write(text);
+            zos.closeEntry();
+        }
+
+        // Act
+        ArchiveNode root = new ZipTreeBuilder().buildTree(tempZipFile);
+
+        // Assert
+        assertThat(root.getChildren().get("plain.txt").getEntry().getSize()).isEqualTo(14);
+        ArchiveNode nestedRoot = root.getChildren().get("nested.zip").getNestedArchiveRoot();
+        assertThat(nestedRoot.getChildren().get("inner.txt").getEntry().getSize()).isEqualTo(5);
+    }
+
+    @Test
+    void buildTree_withCorruptedStoredEntry_failsCrcCheck() throws IOException {
+        byte[] text = "stored content".getBytes();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
+            zos.putNextEntry(storedEntry("plain.txt", text));
+            zos.write(text);
+            zos.closeEntry();
+        }
+        byte[] bytes = baos.toByteArray();
+        bytes[30 + "plain.txt".length()] ^= 0x1; // flip a bit in the first data byte
+        Files.write(tempZipFile, bytes);
+
+        // Loading from a file only reads the central directory, so stream the archive to read the data.
+        assertThatThrownBy(() -> {
+            try (InputStream in = Files.newInputStream(tempZipFile)) {
+                new ZipTreeBuilder().buildTree(in, "corrupted", new HeapTreeSink());
+            }
+        }).isInstanceOf(java.util.zip.ZipException.class)
+                .hasMessageContaining("CRC");
+    }
+
+    @Test
+    void close_rejectsFurtherUse() {
+        ReaderContext context = new ReaderContext();
+        context.close();
+
+        assertThatThrownBy(() -> new ZipTreeBuilder(context).buildTree(tempZipFile))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static byte[] zipOf(String name, byte[] content) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
+            zos.putNextEntry(new ZipEntry(name));
+            zos.write(content);
+            zos.closeEntry();
+        }
+        return baos.toByteArray();
+    }
+
+    private static ZipEntry storedEntry(String name, byte[] content) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.setCrc(crc.getValue());
+        return entry;
+    }
+}
@@ -0,0 +1,51 @@
+package lk.org.inception;
+
+import lk.org.inception.metrics.ArchiveMetrics;
+import lk.org.inception.metrics.LoadMetrics;
+import lk.org.inception.metrics.MetricsListener;
+import lk.org.inception.visitors.TreeVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A metrics listener for tests that records every callback in order, along with the
+ * metrics of each archive and of the last load.
+ */
+final class RecordingListener implements MetricsListener {
+    final List<String> events = new ArrayList<>();
+    final List<ArchiveMetrics> archives = new ArrayList<>();
+    LoadMetrics load;
+
+    @Override
+    public void loadStarted(String source) {
+        events.add("loadStarted");
+    }
+
+    @Override
+    public void archiveStarted(String path, int depth) {
+        events.add("archiveStarted " + path + " " + depth);
+    }
+
+    @Override
+    public void archiveFinished(ArchiveMetrics metrics) {
+        events.add("archiveFinished " + metrics.getPath() + " " + metrics.getDepth());
+        archives.add(metrics);
+    }
+
+    @Override
+    public void loadFinished(LoadMetrics metrics) {
+        events.add("loadFinished");
+        load = metrics;
+    }
+
+    @Override
+    public void visitorPassStarted(List<TreeVisitor<?>> visitors) {
+        events.add("visitorPassStarted " + visitors.size());
+    }
+
+    @Override
+    public void visitorPassFinished(List<TreeVisitor<?>> visitors, long nodesVisited, long nanos) {
+        events.add("visitorPassFinished " + nodesVisited);
+    }
+}
@@ -0,0 +1,268 @@
+package lk.org.inception;
+
+import lk.org.inception.metrics.LoadMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Scale and memory-budget regression tests. They write archives of hundreds of megabytes
+ * (and one sparse file of over 4 GB), so they only run in the {@code scale} profile:
+ * <pre>mvn -B -P scale test</pre>
+ * Every limit can be overridden with a system property, e.g. {@code -Dscale.entries=5000000}.
+ */
+@Tag("scale")
+class ScaleTest {
+
+    private static final int ENTRIES = Integer.getInteger("scale.entries", 1_000_000);
+    private static final long LOAD_BUDGET_MILLIS = Long.getLong("scale.loadBudgetMillis", 30_000);
+    private static final int JOL_ENTRIES = Integer.getInteger("scale.jolEntries", 100_000);
+    private static final long MAX_HEAP_BYTES_PER_ENTRY = Long.getLong("scale.maxHeapBytesPerEntry", 500);
+    private static final long MAX_FROZEN_BYTES_PER_ENTRY = Long.getLong("scale.maxFrozenBytesPerEntry", 350);
+    private static final long MAX_OFF_HEAP_RETAINED_BYTES = Long.getLong("scale.maxOffHeapRetainedBytes", 64 * 1024);
+    private static final int NESTING_LEVELS = Integer.getInteger("scale.nestingLevels", 12);
+    private static final long ZIP64_SIZE = Long.getLong("scale.zip64Size", (1L << 32) + 4096);
+    /** Large enough that neither size fits in the CPU caches or the young generation. */
+    private static final int GROWTH_BASE = Integer.getInteger("scale.growthBase", 100_000);
+    /** Loading and walking four times the entries may take at most this much longer; quadratic code takes 16 times. */
+    private static final double MAX_GROWTH = Double.parseDouble(System.getProperty("scale.maxGrowth", "8"));
+
+    private final List<Path> tempFiles = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (Path tempFile : tempFiles) {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Test
+    void load_millionEntries_staysWithinTimeBudget() throws IOException {
+        // Arrange: a quarter as many directories as files, plus the root
+        Path archive = tempZip();
+        SyntheticArchives.write(archive, SyntheticArchives.Shape.WIDE, SyntheticArchives.Compression.DEFLATED,
+                ENTRIES, 1L, 64);
+        long expectedNodes = ENTRIES + (ENTRIES + 3) / 4 + 1;
+
+        for (LoadOptions.Storage storage : LoadOptions.Storage.values()) {
+            // Act
+            LoadMetrics metrics = loadAndMeasure(archive, LoadOptions.defaults().withStorage(storage));
+
+            // Assert
+            long millis = TimeUnit.NANOSECONDS.toMillis(metrics.getNanos());
+            System.out.printf("[scale] %s: %d entries loaded in %d ms%n", storage, metrics.getEntries(), millis);
+            assertThat(metrics.getEntries()).as("%s", storage).isEqualTo(ENTRIES);
+            assertThat(metrics.getNodesCreated()).as("%s", storage).isEqualTo(expectedNodes);
+            assertThat(millis).as("%s load time", storage).isLessThanOrEqualTo(LOAD_BUDGET_MILLIS);
+        }
+    }
+
+    @Test
+    void heapPerEntry_staysUnderThreshold() throws IOException {
+        // Arrange
+        Path archive = tempZip();
+        SyntheticArchives.write(archive, SyntheticArchives.Shape.WIDE, SyntheticArchives.Compression.DEFLATED,
+                JOL_ENTRIES, 1L, 64);
+
+        // Act
+        long heap = retainedBytes(archive, LoadOptions.defaults());
+        long frozen = retainedBytes(archive, LoadOptions.defaults().withFrozen(true));
+        long offHeap = retainedBytes(archive, LoadOptions.defaults().withStorage(LoadOptions.Storage.OFF_HEAP));
+
+        // Assert
+        System.out.printf("[JOL] per entry: heap %d bytes, frozen %d bytes; off-heap retains %d bytes in total%n",
+                heap / JOL_ENTRIES, frozen / JOL_ENTRIES, offHeap);
+        assertThat(heap / JOL_ENTRIES).isLessThanOrEqualTo(MAX_HEAP_BYTES_PER_ENTRY);
+        assertThat(frozen / JOL_ENTRIES).isLessThanOrEqualTo(MAX_FROZEN_BYTES_PER_ENTRY);
+        assertThat(offHeap).isLessThanOrEqualTo(MAX_OFF_HEAP_RETAINED_BYTES);
+    }
+
+    @Test
+    void load_deeplyNestedArchives_reachesInnermostLevel() throws IOException {
+        // Arrange
+        Path archive = tempZip();
+        SyntheticArchives.writeNestingChain(archive, NESTING_LEVELS, 1_000, SyntheticArchives.Compression.DEFLATED, 1L);
+
+        // Act
+        RecordingListener listener = new RecordingListener();
+        EffectiveSpork spork = EffectiveSpork.load(archive, LoadOptions.defaults().withMetricsListener(listener));
+        List<String> files = spork.findFilesLargerThan(-1);
+
+        // Assert: every level holds 1000 files, and all but the innermost one more archive
+        StringBuilder innermost = new StringBuilder("/");
+        for (int level = 1; level < NESTING_LEVELS; level++) {
+            innermost.append("/level-").append(level).append(".zip");
+        }
+        assertThat(listener.load.getMaxDepth()).isEqualTo(NESTING_LEVELS - 1);
+        assertThat(listener.load.getEntries()).isEqualTo(NESTING_LEVELS * 1_001L - 1);
+        assertThat(files).hasSize(NESTING_LEVELS * 1_001 - 1)
+                .contains(innermost + "/files/file-999.txt");
+    }
+
+    @Test
+    void load_sparseZip64Entry_readsSizesBeyondFourGigabytes() throws IOException {
+        // Arrange
+        Path archive = tempZip();
+        SyntheticArchives.writeSparseZip64(archive, ZIP64_SIZE);
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            // The JDK's own reader agrees the archive is well formed.
+            assertThat(zipFile.getEntry("huge.bin").getSize()).isEqualTo(ZIP64_SIZE);
+        }
+
+        // Act
+        EffectiveSpork spork = EffectiveSpork.load(archive);
+
+        // Assert
+        ZipEntry huge = spork.getRootNode().getChildren().get("huge.bin").getEntry();
+        assertThat(huge.getSize()).isEqualTo(ZIP64_SIZE);
+        assertThat(huge.getCompressedSize()).isEqualTo(ZIP64_SIZE);
+        ArchiveNode after = spork.getRootNode().getChildren().get("after.txt");
+        assertThat(after.getEntry().getSize()).isEqualTo(5);
+        assertThat(after.getLocalHeaderOffset()).isGreaterThan(ZIP64_SIZE);
+        assertThat(spork.findFilesLargerThan(0xFFFFFFFFL)).containsExactly("//huge.bin");
+    }
+
+    @Test
+    void load_longPaths_keepsEveryEntry() throws IOException {
+        // Arrange: many entries with long paths, and a few at the 64 KB limit of the format
+        Path archive = tempZip();
+        SyntheticArchives.writeLongPaths(archive, 2_000, 8_000);
+        Path limitArchive = tempZip();
+        SyntheticArchives.writeLongPaths(limitArchive, 3, 65_000);
+
+        for (Path path : new Path[]{archive, limitArchive}) {
+            for (LoadOptions options : new LoadOptions[]{LoadOptions.defaults(), LoadOptions.defaults().withFrozen(true),
+                    LoadOptions.defaults().withStorage(LoadOptions.Storage.OFF_HEAP)}) {
+                // Act
+                try (EffectiveSpork spork = EffectiveSpork.load(path, options)) {
+                    List<String> files = spork.findEmptyFiles();
+
+                    // Assert
+                    assertThat(files).isNotEmpty().allSatisfy(file -> assertThat(file.length()).isGreaterThan(7_000));
+                    assertThat(files.get(0)).endsWith("/file-0.txt");
+                }
+            }
+        }
+    }
+
+    @Test
+    void loadAndTraverse_growLinearly_forEveryShapeAndStorage() throws IOException {
+        for (SyntheticArchives.Shape shape : SyntheticArchives.Shape.values()) {
+            // Arrange
+            Path small = tempZip();
+            Path large = tempZip();
+            SyntheticArchives.write(small, shape, SyntheticArchives.Compression.STORED, GROWTH_BASE, 1L, 64);
+            SyntheticArchives.write(large, shape, SyntheticArchives.Compression.STORED, 4 * GROWTH_BASE, 1L, 64);
+
+            for (LoadOptions options : new LoadOptions[]{LoadOptions.defaults(), LoadOptions.defaults().withFrozen(true),
+                    LoadOptions.defaults().withStorage(LoadOptions.Storage.OFF_HEAP)}) {
+                // Act: the first load only warms up the JIT
+                bestLoadAndTraverseNanos(small, options);
+                long smallNanos = bestLoadAndTraverseNanos(small, options);
+                long largeNanos = bestLoadAndTraverseNanos(large, options);
+
+                // Assert
+                double growth = (double) largeNanos / smallNanos;
+                System.out.printf("[scale] %s/%s: x4 entries took x%.1f time%n", shape, describe(options), growth);
+                assertThat(growth).as("%s/%s", shape, describe(options)).isLessThan(MAX_GROWTH);
+            }
+        }
+    }
+
+    @Test
+    void diff_ofWideDirectories_growsLinearly_forEveryStorage() throws IOException {
+        // Arrange: every file differs, so the diff looks up every child of one huge directory by name
+        Path smallOld = tempZip();
+        Path smallNew = tempZip();
+        Path largeOld = tempZip();
+        Path largeNew = tempZip();
+        SyntheticArchives.write(smallOld, SyntheticArchives.Shape.FLAT, SyntheticArchives.Compression.STORED, GROWTH_BASE, 1L, 64);
+        SyntheticArchives.write(smallNew, SyntheticArchives.Shape.FLAT, SyntheticArchives.Compression.STORED, GROWTH_BASE, 2L, 64);
+        SyntheticArchives.write(largeOld, SyntheticArchives.Shape.FLAT, SyntheticArchives.Compression.STORED, 4 * GROWTH_BASE, 1L, 64);
+        SyntheticArchives.write(largeNew, SyntheticArchives.Shape.FLAT, SyntheticArchives.Compression.STORED, 4 * GROWTH_BASE, 2L, 64);
+
+        for (LoadOptions options : new LoadOptions[]{LoadOptions.defaults(), LoadOptions.defaults().withFrozen(true),
+                LoadOptions.defaults().withStorage(LoadOptions.Storage.OFF_HEAP)}) {
+            try (EffectiveSpork smallA = EffectiveSpork.load(smallOld, options);
+                 EffectiveSpork smallB = EffectiveSpork.load(smallNew, options);
+                 EffectiveSpork largeA = EffectiveSpork.load(largeOld, options);
+                 EffectiveSpork largeB = EffectiveSpork.load(largeNew, options)) {
+                // Act: the first diff only warms up the JIT
+                bestDiffNanos(smallA, smallB);
+                long smallNanos = bestDiffNanos(smallA, smallB);
+                long largeNanos = bestDiffNanos(largeA, largeB);
+
+                // Assert
+                double growth = (double) largeNanos / smallNanos;
+                System.out.printf("[scale] diff FLAT/%s: x4 entries took x%.1f time%n", describe(options), growth);
+                assertThat(growth).as("diff %s", describe(options)).isLessThan(MAX_GROWTH);
+            }
+        }
+    }
+
+    private Path tempZip() throws IOException {
+        Path tempFile = Files.createTempFile("test-scale-", ".zip");
+        tempFiles.add(tempFile);
+        return tempFile;
+    }
+
+    private static LoadMetrics loadAndMeasure(Path archive, LoadOptions options) throws IOException {
+        RecordingListener listener = new RecordingListener();
+        EffectiveSpork.load(archive, options.withMetricsListener(listener)).close();
+        return listener.load;
+    }
+
+    private static long retainedBytes(Path archive, LoadOptions options) throws IOException {
+        try (EffectiveSpork spork = EffectiveSpork.load(archive, options)) {
+            return GraphLayout.parseInstance(spork).totalSize();
+        }
+    }
+
+    /**
+     * The fastest of three runs, each starting from a collected heap, so garbage left by an
+     * earlier run or a stray GC pause does not count as growth. Heap resizing would distort
+     * the ratio too, which is why the scale profile fixes the heap size.
+     */
+    private static long bestLoadAndTraverseNanos(Path archive, LoadOptions options) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            System.gc();
+            long start = System.nanoTime();
+            try (EffectiveSpork spork = EffectiveSpork.load(archive, options)) {
+                spork.findEmptyFiles();
+                spork.findEmptyDirectories();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static long bestDiffNanos(EffectiveSpork older, EffectiveSpork newer) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            System.gc();
+            long[] changed = new long[1];
+            long start = System.nanoTime();
+            older.diff(newer, (kind, path, oldNode, newNode) -> changed[0]++);
+            best = Math.min(best, System.nanoTime() - start);
+            assertThat(changed[0]).isPositive();
+        }
+        return best;
+    }
+
+    private static String describe(LoadOptions options) {
+        return options.isFrozen() ? "FROZEN" : options.getStorage().toString();
+    }
+}
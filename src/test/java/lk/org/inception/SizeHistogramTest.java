@@ -0,0 +1,47 @@
+package lk.org.inception;
+
+import lk.org.inception.visitors.CompressionAnalyticsVisitor;
+import lk.org.inception.visitors.SizeHistogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.zip.ZipEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SizeHistogramTest {
+
+    @Test
+    void bucketOf_placesEverySizeBetweenItsBucketBounds() {
+        long[] sizes = {0, 1, 2, 3, 4, 1023, 1024, 1025, 0xFFFFFFFFL, 1L << 32, Long.MAX_VALUE};
+        for (long size : sizes) {
+            int bucket = SizeHistogram.bucketOf(size);
+
+            assertThat(bucket).isBetween(0, SizeHistogram.BUCKETS - 1);
+            assertThat(size).as("size %d in bucket %d", size, bucket)
+                    .isBetween(SizeHistogram.lowerBound(bucket), SizeHistogram.upperBound(bucket));
+        }
+    }
+
+    @Test
+    void getQuantileUpperBound_overestimatesByLessThanTwice() {
+        // Arrange: 90 small files and 10 large ones
+        CompressionAnalyticsVisitor visitor = new CompressionAnalyticsVisitor();
+        for (int i = 0; i < 100; i++) {
+            long size = i < 90 ? 100 : 5_000_000;
+            ZipEntry entry = new ZipEntry("f" + i);
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            visitor.visit(new ArchiveNode("f" + i, entry), "//f" + i);
+        }
+
+        // Act
+        SizeHistogram histogram = visitor.getResult().getSizeHistogram();
+
+        // Assert
+        assertThat(histogram.getQuantileUpperBound(0.5)).isBetween(100L, 199L);
+        assertThat(histogram.getQuantileUpperBound(0.9)).isBetween(100L, 199L);
+        assertThat(histogram.getQuantileUpperBound(0.95)).isBetween(5_000_000L, 9_999_999L);
+        assertThat(histogram.getBytes(SizeHistogram.bucketOf(100))).isEqualTo(9_000);
+        assertThat(new SizeHistogram().getQuantileUpperBound(0.5)).isZero();
+    }
+}
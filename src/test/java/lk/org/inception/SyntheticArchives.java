@@ -0,0 +1,313 @@
+package lk.org.inception;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates deterministic synthetic archives for benchmarks and scale tests.
+ * The same arguments always produce byte-identical files, so results can be
+ * compared across versions.
+ */
+public final class SyntheticArchives {
+
+    /** A fixed timestamp, so entry headers never depend on the wall clock. */
+    private static final long FIXED_TIME = 1_600_000_000_000L;
+
+    /** The default upper bound on file sizes, in bytes. */
+    private static final int DEFAULT_MAX_FILE_SIZE = 2048;
+
+    /** Entries per group in {@link Shape#NESTED}: the chain of archive entries plus the innermost files. */
+    private static final int NESTED_GROUP = 100;
+    private static final int NESTING_DEPTH = 3;
+
+    private static final long ZIP64_MAGICVAL = 0xFFFFFFFFL;
+
+    /**
+     * The layout of the generated archive.
+     */
+    public enum Shape {
+        /** Every file in the root directory. */
+        FLAT,
+        /** Files spread along directory chains up to 32 levels deep. */
+        DEEP,
+        /** Many sibling directories holding a few files each. */
+        WIDE,
+        /** Groups of three archives nested inside each other, the innermost holding the files. */
+        NESTED
+    }
+
+    /**
+     * How file entries are stored.
+     */
+    public enum Compression {
+        STORED(ZipEntry.STORED),
+        DEFLATED(ZipEntry.DEFLATED);
+
+        private final int method;
+
+        Compression(int method) {
+            this.method = method;
+        }
+    }
+
+    private SyntheticArchives() {
+    }
+
+    /**
+     * Writes an archive with exactly {@code entryCount} ZIP entries across all nesting
+     * levels, nested archive entries included.
+     * @param target      The file to write.
+     * @param shape       The layout.
+     * @param compression How file entries are stored.
+     * @param entryCount  The total number of entries.
+     * @param seed        Seeds file sizes and contents.
+     */
+    public static void write(Path target, Shape shape, Compression compression, int entryCount, long seed)
+            throws IOException {
+        write(target, shape, compression, entryCount, seed, DEFAULT_MAX_FILE_SIZE);
+    }
+
+    /**
+     * Like {@link #write(Path, Shape, Compression, int, long)}, with files of at most
+     * {@code maxFileSize} bytes, so archives with millions of entries stay small on disk.
+     */
+    public static void write(Path target, Shape shape, Compression compression, int entryCount, long seed,
+                             int maxFileSize) throws IOException {
+        Random random = new Random(seed);
+        try (OutputStream os = Files.newOutputStream(target);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            int written = 0;
+            if (shape == Shape.NESTED) {
+                for (int group = 0; written + NESTED_GROUP <= entryCount; group++) {
+                    byte[] archive = archiveOf("lib/", NESTED_GROUP - NESTING_DEPTH, compression, random, maxFileSize);
+                    for (int level = NESTING_DEPTH - 1; level > 0; level--) {
+                        archive = archiveOf(new String[]{"level-" + level + ".zip"}, new byte[][]{archive}, compression);
+                    }
+                    putEntry(zos, "nested/group-" + group + ".zip", archive, compression);
+                    written += NESTED_GROUP;
+                }
+            }
+            for (int i = written; i < entryCount; i++) {
+                putEntry(zos, pathFor(shape, i), content(random, maxFileSize), compression);
+            }
+        }
+    }
+
+    /**
+     * Writes a chain of archives nested {@code levels} deep: every level holds
+     * {@code filesPerLevel} files under {@code files/} and, except the innermost, the next
+     * level as {@code level-<n>.zip}. The outer archive is level 0.
+     */
+    public static void writeNestingChain(Path target, int levels, int filesPerLevel, Compression compression,
+                                         long seed) throws IOException {
+        Random random = new Random(seed);
+        byte[] archive = null;
+        for (int level = levels - 1; level >= 0; level--) {
+            String[] names = new String[filesPerLevel + (archive == null ? 0 : 1)];
+            byte[][] contents = new byte[names.length][];
+            for (int i = 0; i < filesPerLevel; i++) {
+                names[i] = "files/file-" + i + ".txt";
+                contents[i] = content(random, DEFAULT_MAX_FILE_SIZE);
+            }
+            if (archive != null) {
+                names[filesPerLevel] = "level-" + (level + 1) + ".zip";
+                contents[filesPerLevel] = archive;
+            }
+            archive = archiveOf(names, contents, compression);
+        }
+        Files.write(target, archive);
+    }
+
+    /**
+     * Writes {@code entryCount} empty files whose paths are about {@code pathLength}
+     * characters long, split into 16-character directory names shared by all entries.
+     * ZIP limits names to 65535 bytes.
+     */
+    public static void writeLongPaths(Path target, int entryCount, int pathLength) throws IOException {
+        StringBuilder directory = new StringBuilder();
+        for (int segment = 0; directory.length() + 32 < pathLength; segment++) {
+            directory.append(String.format("segment-%07d/", segment));
+        }
+        try (OutputStream os = Files.newOutputStream(target);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            for (int i = 0; i < entryCount; i++) {
+                putEntry(zos, directory + "file-" + i + ".txt", new byte[0], Compression.STORED);
+            }
+        }
+    }
+
+    /**
+     * Writes a Zip64 archive holding one stored entry, {@code huge.bin}, of {@code size}
+     * zero bytes, followed by a small {@code after.txt}. The zeros are left as a hole in
+     * the file, so on file systems with sparse file support it takes almost no disk space
+     * however large {@code size} is. Writing still has to checksum every byte.
+     */
+    public static void writeSparseZip64(Path target, long size) throws IOException {
+        byte[] hugeName = "huge.bin".getBytes(StandardCharsets.UTF_8);
+        byte[] afterName = "after.txt".getBytes(StandardCharsets.UTF_8);
+        byte[] afterContent = "after".getBytes(StandardCharsets.UTF_8);
+        long hugeCrc = zeroCrc(size);
+        CRC32 crc = new CRC32();
+        crc.update(afterContent);
+        long afterCrc = crc.getValue();
+        long dosTime = javaToDosTime(FIXED_TIME);
+
+        try (RandomAccessFile file = new RandomAccessFile(target.toFile(), "rw")) {
+            file.setLength(0);
+            ByteBuffer header = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+
+            // Local header of huge.bin, sizes in the Zip64 extra field, then a hole for the data.
+            putLocalHeader(header, dosTime, hugeCrc, ZIP64_MAGICVAL, ZIP64_MAGICVAL, hugeName, 20);
+            header.putShort((short) 0x0001).putShort((short) 16).putLong(size).putLong(size);
+            long hugeDataStart = flush(file, header);
+            long afterOffset = hugeDataStart + size;
+            file.seek(afterOffset);
+
+            putLocalHeader(header, dosTime, afterCrc, afterContent.length, afterContent.length, afterName, 0);
+            header.put(afterContent);
+            long centralDirectoryOffset = afterOffset + flush(file, header);
+
+            putCentralHeader(header, dosTime, hugeCrc, ZIP64_MAGICVAL, ZIP64_MAGICVAL, 0, hugeName, 20);
+            header.putShort((short) 0x0001).putShort((short) 16).putLong(size).putLong(size);
+            putCentralHeader(header, dosTime, afterCrc, afterContent.length, afterContent.length, ZIP64_MAGICVAL,
+                    afterName, 12);
+            header.putShort((short) 0x0001).putShort((short) 8).putLong(afterOffset);
+            int centralDirectorySize = header.position();
+            long zip64EndOffset = centralDirectoryOffset + centralDirectorySize;
+
+            header.putInt(0x06064b50).putLong(44).putShort((short) 45).putShort((short) 45)
+                    .putInt(0).putInt(0).putLong(2).putLong(2)
+                    .putLong(centralDirectorySize).putLong(centralDirectoryOffset);
+            header.putInt(0x07064b50).putInt(0).putLong(zip64EndOffset).putInt(1);
+            header.putInt(0x06054b50).putShort((short) 0).putShort((short) 0).putShort((short) 2).putShort((short) 2)
+                    .putInt(centralDirectorySize).putInt((int) ZIP64_MAGICVAL).putShort((short) 0);
+            flush(file, header);
+        }
+    }
+
+    private static String pathFor(Shape shape, int i) {
+        switch (shape) {
+            case DEEP: {
+                StringBuilder path = new StringBuilder();
+                int depth = i % 32;
+                for (int level = 0; level < depth; level++) {
+                    path.append("level-").append(level).append('/');
+                }
+                return path.append("file-").append(i).append(".txt").toString();
+            }
+            case WIDE:
+                return "dir-" + (i / 4) + "/file-" + i + ".txt";
+            default:
+                return "file-" + i + ".txt";
+        }
+    }
+
+    private static byte[] archiveOf(String prefix, int files, Compression compression, Random random,
+                                    int maxFileSize) throws IOException {
+        String[] names = new String[files];
+        byte[][] contents = new byte[files][];
+        for (int i = 0; i < files; i++) {
+            names[i] = prefix + "file-" + i + ".txt";
+            contents[i] = content(random, maxFileSize);
+        }
+        return archiveOf(names, contents, compression);
+    }
+
+    private static byte[] archiveOf(String[] names, byte[][] contents, Compression compression) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
+            for (int i = 0; i < names.length; i++) {
+                putEntry(zos, names[i], contents[i], compression);
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    private static void putEntry(ZipOutputStream zos, String name, byte[] content, Compression compression)
+            throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(FIXED_TIME);
+        entry.setMethod(compression.method);
+        if (compression == Compression.STORED) {
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setSize(content.length);
+            entry.setCompressedSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
+        zos.putNextEntry(entry);
+        zos.write(content);
+        zos.closeEntry();
+    }
+
+    private static void putLocalHeader(ByteBuffer header, long dosTime, long crc, long compressedSize, long size,
+                                       byte[] name, int extraLength) {
+        header.putInt(0x04034b50).putShort((short) 45).putShort((short) 0).putShort((short) ZipEntry.STORED)
+                .putInt((int) dosTime).putInt((int) crc).putInt((int) compressedSize).putInt((int) size)
+                .putShort((short) name.length).putShort((short) extraLength).put(name);
+    }
+
+    private static void putCentralHeader(ByteBuffer header, long dosTime, long crc, long compressedSize, long size,
+                                         long localHeaderOffset, byte[] name, int extraLength) {
+        header.putInt(0x02014b50).putShort((short) 45).putShort((short) 45).putShort((short) 0)
+                .putShort((short) ZipEntry.STORED).putInt((int) dosTime).putInt((int) crc)
+                .putInt((int) compressedSize).putInt((int) size).putShort((short) name.length)
+                .putShort((short) extraLength).putShort((short) 0).putShort((short) 0).putShort((short) 0)
+                .putInt(0).putInt((int) localHeaderOffset).put(name);
+    }
+
+    /**
+     * Appends the buffered bytes at the file pointer and clears the buffer.
+     * @return The number of bytes written.
+     */
+    private static long flush(RandomAccessFile file, ByteBuffer header) throws IOException {
+        int length = header.position();
+        file.write(header.array(), 0, length);
+        header.clear();
+        return length;
+    }
+
+    private static long zeroCrc(long size) {
+        CRC32 crc = new CRC32();
+        byte[] zeros = new byte[1 << 20];
+        for (long left = size; left > 0; left -= zeros.length) {
+            crc.update(zeros, 0, (int) Math.min(left, zeros.length));
+        }
+        return crc.getValue();
+    }
+
+    private static long javaToDosTime(long time) {
+        LocalDateTime ldt = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        return (ldt.getYear() - 1980) << 25 | ldt.getMonthValue() << 21 | ldt.getDayOfMonth() << 16
+                | ldt.getHour() << 11 | ldt.getMinute() << 5 | ldt.getSecond() >> 1;
+    }
+
+    /**
+     * Somewhat compressible content: a short random alphabet, shorter than {@code maxFileSize}
+     * bytes; one file in ten is empty.
+     */
+    private static byte[] content(Random random, int maxFileSize) {
+        if (random.nextInt(10) == 0) {
+            return new byte[0];
+        }
+        byte[] content = new byte[random.nextInt(maxFileSize)];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return content;
+    }
+}
@@ -0,0 +1,93 @@
+package lk.org.inception;
+
+import lk.org.inception.visitors.TreeVisitor;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SyntheticArchivesTest {
+
+    @Test
+    void write_producesExactEntryCountAndIdenticalBytes_forEveryShape() throws IOException {
+        for (SyntheticArchives.Shape shape : SyntheticArchives.Shape.values()) {
+            for (SyntheticArchives.Compression compression : SyntheticArchives.Compression.values()) {
+                // Arrange
+                Path first = Files.createTempFile("test-synthetic-", ".zip");
+                Path second = Files.createTempFile("test-synthetic-", ".zip");
+
+                // Act
+                SyntheticArchives.write(first, shape, compression, 1_234, 7L);
+                SyntheticArchives.write(second, shape, compression, 1_234, 7L);
+                EntryCounter counter = new EntryCounter();
+                EffectiveSpork.load(first).process(counter);
+
+                // Assert
+                assertThat(counter.getResult()).as("%s/%s", shape, compression).isEqualTo(1_234);
+                assertThat(Files.readAllBytes(first)).isEqualTo(Files.readAllBytes(second));
+
+                Files.delete(first);
+                Files.delete(second);
+            }
+        }
+    }
+
+    @Test
+    void writeNestingChain_nestsEveryLevel() throws IOException {
+        // Arrange
+        Path archive = Files.createTempFile("test-synthetic-", ".zip");
+
+        // Act
+        SyntheticArchives.writeNestingChain(archive, 3, 5, SyntheticArchives.Compression.DEFLATED, 7L);
+        EffectiveSpork spork = EffectiveSpork.load(archive);
+
+        // Assert
+        assertThat(spork.findFilesLargerThan(-1)).hasSize(3 * 5 + 2)
+                .contains("//level-1.zip/level-2.zip/files/file-4.txt");
+
+        Files.delete(archive);
+    }
+
+    @Test
+    void writeSparseZip64_isReadableByTheJdkAndTheLibrary() throws IOException {
+        // Arrange: a small size still uses the Zip64 layout
+        Path archive = Files.createTempFile("test-synthetic-", ".zip");
+
+        // Act
+        SyntheticArchives.writeSparseZip64(archive, 100_000);
+
+        // Assert
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            assertThat(zipFile.getEntry("huge.bin").getSize()).isEqualTo(100_000);
+            assertThat(zipFile.getEntry("after.txt").getSize()).isEqualTo(5);
+        }
+        ArchiveNode root = EffectiveSpork.load(archive).getRootNode();
+        assertThat(root.getChildren().get("huge.bin").getEntry().getSize()).isEqualTo(100_000);
+        assertThat(root.getChildren().get("after.txt").getEntry().getSize()).isEqualTo(5);
+
+        Files.delete(archive);
+    }
+
+    /**
+     * Counts the nodes that come from a real ZIP entry.
+     */
+    private static class EntryCounter implements TreeVisitor<Integer> {
+        private int count;
+
+        @Override
+        public void visit(ArchiveNode node, String path) {
+            if (node.getEntry() != null) {
+                count++;
+            }
+        }
+
+        @Override
+        public Integer getResult() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package lk.org.inception;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TreeDifferTest {
+
+    private Path oldZip;
+    private Path newZip;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        oldZip = Files.createTempFile("test-diff-old-", ".zip");
+        newZip = Files.createTempFile("test-diff-new-", ".zip");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(oldZip);
+        Files.deleteIfExists(newZip);
+    }
+
+    @Test
+    void diff_reportsAddedRemovedAndChangedEntries_acrossNestedArchives() throws IOException {
+        // Arrange
+        byte[] unchangedLib = zipOf("lib/a.txt", "same");
+        writeZip(oldZip,
+                "keep.txt", "same".getBytes(),
+                "edit.txt", "before".getBytes(),
+                "gone/old.txt", "x".getBytes(),
+                "lib.zip", unchangedLib,
+                "app.zip", zipOf("inner.txt", "v1"));
+        writeZip(newZip,
+                "keep.txt", "same".getBytes(),
+                "edit.txt", "after!".getBytes(),
+                "new.txt", "y".getBytes(),
+                "lib.zip", unchangedLib,
+                "app.zip", zipOf("inner.txt", "v2"));
+
+        // Act
+        List<String> differences = diff(EffectiveSpork.load(oldZip), EffectiveSpork.load(newZip));
+
+        // Assert
+        assertThat(differences).containsExactlyInAnyOrder(
+                "CHANGED //edit.txt",
+                "REMOVED //gone",
+                "REMOVED //gone/old.txt",
+                "CHANGED //app.zip",
+                "CHANGED //app.zip/inner.txt",
+                "ADDED //new.txt"
+        );
+    }
+
+    @Test
+    void diff_ofIdenticalArchives_reportsNothing() throws IOException {
+        writeZip(oldZip, "a/b/c.txt", "c".getBytes(), "nested.zip", zipOf("d.txt", "d"));
+        Files.copy(oldZip, newZip, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+
+        assertThat(diff(EffectiveSpork.load(oldZip), EffectiveSpork.load(newZip))).isEmpty();
+    }
+
+    @Test
+    void diff_betweenHeapAndOffHeapTrees_comparesRecordedFingerprints() throws IOException {
+        writeZip(oldZip, "dir/a.txt", "a".getBytes(), "dir/b.txt", "b".getBytes());
+        writeZip(newZip, "dir/a.txt", "a".getBytes(), "dir/b.txt", "B".getBytes());
+
+        try (EffectiveSpork older = EffectiveSpork.load(oldZip, LoadOptions.defaults().withFrozen(true));
+             EffectiveSpork newer = EffectiveSpork.load(newZip,
+                     LoadOptions.defaults().withStorage(LoadOptions.Storage.OFF_HEAP))) {
+            assertThat(diff(older, newer)).containsExactly("CHANGED //dir/b.txt");
+            assertThat(diff(newer, older)).containsExactly("CHANGED //dir/b.txt");
+        }
+    }
+
+    @Test
+    void load_recordsTheSameFingerprints_forEveryStorage() throws IOException {
+        // Arrange
+        writeZip(oldZip, "dir/a.txt", "a".getBytes(), "dir/sub/b.txt", "b".getBytes(),
+                "nested.zip", zipOf("inner/c.txt", "c"));
+
+        // Act
+        try (EffectiveSpork heap = EffectiveSpork.load(oldZip);
+             EffectiveSpork offHeap = EffectiveSpork.load(oldZip,
+                     LoadOptions.defaults().withStorage(LoadOptions.Storage.OFF_HEAP))) {
+            ArchiveNode heapRoot = heap.getRootNode();
+            ArchiveNode offHeapRoot = offHeap.getRootNode();
+
+            // Assert
+            assertThat(heapRoot.getFingerprint()).isNotZero().isEqualTo(offHeapRoot.getFingerprint());
+            assertThat(heapRoot.getChildren().get("dir").getFingerprint())
+                    .isEqualTo(offHeapRoot.getChildren().get("dir").getFingerprint());
+            assertThat(heapRoot.getChildren().get("nested.zip").getNestedArchiveRoot().getFingerprint())
+                    .isNotZero()
+                    .isEqualTo(offHeapRoot.getChildren().get("nested.zip").getNestedArchiveRoot().getFingerprint());
+        }
+    }
+
+    @Test
+    void diff_ofTreesBuiltByHand_descendsIntoEveryDirectory() throws IOException {
+        // Arrange: nodes built by hand have no recorded fingerprint
+        writeZip(oldZip, "dir/a.txt", "a".getBytes());
+        EffectiveSpork loaded = EffectiveSpork.load(oldZip);
+        ArchiveNode handBuiltRoot = new ArchiveNode("/", null);
+        ArchiveNode dir = new ArchiveNode("dir", null);
+        handBuiltRoot.getChildren().put("dir", dir);
+        dir.getChildren().put("a.txt", loaded.getRootNode().getChildren().get("dir").getChildren().get("a.txt"));
+        dir.getChildren().put("b.txt", new ArchiveNode("b.txt", new ZipEntry("dir/b.txt")));
+        List<String> differences = new ArrayList<>();
+
+        // Act
+        new TreeDiffer((kind, path, oldNode, newNode) -> differences.add(kind + " " + path))
+                .diffRoots(loaded.getRootNode(), handBuiltRoot);
+
+        // Assert
+        assertThat(differences).containsExactly("ADDED //dir/b.txt");
+    }
+
+    @Test
+    void diff_whenFileBecomesDirectory_reportsTypeChange() throws IOException {
+        writeZip(oldZip, "thing", "file".getBytes());
+        writeZip(newZip, "thing/inside.txt", "file".getBytes());
+
+        assertThat(diff(EffectiveSpork.load(oldZip), EffectiveSpork.load(newZip))).containsExactly(
+                "CHANGED //thing",
+                "ADDED //thing/inside.txt"
+        );
+    }
+
+    private static List<String> diff(EffectiveSpork older, EffectiveSpork newer) {
+        List<String> differences = new ArrayList<>();
+        older.diff(newer, (kind, path, oldNode, newNode) -> differences.add(kind + " " + path));
+        return differences;
+    }
+
+    private static void writeZip(Path target, Object... namesAndContents) throws IOException {
+        try (OutputStream os = Files.newOutputStream(target);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zos.putNextEntry(new ZipEntry((String) namesAndContents[i]));
+                zos.write((byte[]) namesAndContents[i + 1]);
+                zos.closeEntry();
+            }
+        }
+    }
+
+    private static byte[] zipOf(String name, String content) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
+            zos.putNextEntry(new ZipEntry(name));
+            zos.write(content.getBytes());
+            zos.closeEntry();
+        }
+        return baos.toByteArray();
+    }
+}
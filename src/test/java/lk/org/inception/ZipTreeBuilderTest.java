@@ -4,11 +4,14 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -82,6 +85,28 @@ class ZipTreeBuilderTest {
         assertThat(fileNode.getName()).isEqualTo("hello.txt");
     }
 
+    @Test
+    void buildTree_withIrregularSlashes_splitsNamesLikeAPath() throws IOException {
+        // Arrange: a leading slash, a doubled slash and a directory entry with two trailing slashes
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            for (String name : new String[]{"/top.txt", "a//b/c.txt", "a/d//"}) {
+                zos.putNextEntry(new ZipEntry(name));
+                zos.closeEntry();
+            }
+        }
+
+        // Act
+        ArchiveNode root = builder.buildTree(tempZipFile);
+
+        // Assert
+        assertThat(root.getChildren()).containsOnlyKeys("top.txt", "a");
+        ArchiveNode a = root.getChildren().get("a");
+        assertThat(a.getChildren()).containsOnlyKeys("b", "d");
+        assertThat(a.getChildren().get("b").getChildren()).containsOnlyKeys("c.txt");
+        assertThat(a.getChildren().get("d").getEntry().getName()).isEqualTo("a/d//");
+    }
+
     @Test
     void buildTree_withNestedZip_createsSubTree() throws IOException {
         // Arrange: Create an inner zip in memory
@@ -178,4 +203,179 @@ class ZipTreeBuilderTest {
         assertThat(innerDirNode.isDirectory()).isTrue();
         assertThat(innerDirNode.getChildren()).isEmpty();
     }
+
+    @Test
+    void buildTree_withFilter_buildsOnlyTheMatchingSubsetAndSkipsPrunedArchives() throws IOException {
+        // Arrange: a nested archive that holds a match and one that cannot.
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ZipOutputStream innerZos = new ZipOutputStream(baos)) {
+            innerZos.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            innerZos.write("Manifest-Version: 1.0".getBytes());
+            innerZos.closeEntry();
+            innerZos.putNextEntry(new ZipEntry("readme.txt"));
+            innerZos.closeEntry();
+        }
+        byte[] innerZipBytes = baos.toByteArray();
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry("docs/readme.txt"));
+            zos.write("hello".getBytes());
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("app.zip"));
+            zos.write(innerZipBytes);
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("lib/dep.zip"));
+            zos.write(innerZipBytes);
+            zos.closeEntry();
+        }
+        EntryFilter filter = EntryFilter.all().withIncludes("app.zip/META-INF/**", "lib/*.zip");
+
+        // Act
+        ArchiveNode root = new ZipTreeBuilder(null, LoadOptions.defaults().withFilter(filter)).buildTree(tempZipFile);
+
+        // Assert: no node for unmatched entries, not even their parent directories.
+        assertThat(root.getChildren()).containsOnlyKeys("app.zip", "lib");
+
+        // app.zip is kept only as the container of its matching manifest.
+        ArchiveNode appRoot = root.getChildren().get("app.zip").getNestedArchiveRoot();
+        assertThat(appRoot.getChildren()).containsOnlyKeys("META-INF");
+        assertThat(appRoot.getChildren().get("META-INF").getChildren()).containsOnlyKeys("MANIFEST.MF");
+
+        // lib/dep.zip matches itself, but nothing inside it can, so it is never parsed.
+        ArchiveNode depNode = root.getChildren().get("lib").getChildren().get("dep.zip");
+        assertThat(depNode).isNotNull();
+        assertThat(depNode.getNestedArchiveRoot()).isNull();
+    }
+
+    @Test
+    void buildTree_fromStream_withSizeFilter_usesSizesFromDataDescriptors() throws IOException {
+        // Arrange: ZipOutputStream writes deflated sizes after the data, and a stream is read
+        // through its local headers, so the sizes are only known once the data has been read.
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            writeSmallAndLarge(zos);
+        }
+        EntryFilter filter = EntryFilter.all().withSizeBetween(100, Long.MAX_VALUE);
+
+        // Act
+        ArchiveNode root;
+        try (InputStream in = Files.newInputStream(tempZipFile)) {
+            root = new ZipTreeBuilder(null, LoadOptions.defaults().withFilter(filter))
+                    .buildTree(in, "InputStream", new HeapTreeSink());
+        }
+
+        // Assert
+        assertThat(root.getChildren()).containsOnlyKeys("large.txt");
+    }
+
+    @Test
+    void buildTree_withSizeFilter_usesSizesFromDataDescriptors_insideDeflatedNestedArchives() throws IOException {
+        // Arrange: a deflated nested archive is streamed, so its entries are read through their local headers
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ZipOutputStream innerZos = new ZipOutputStream(baos)) {
+            writeSmallAndLarge(innerZos);
+        }
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry("bundle.zip"));
+            zos.write(baos.toByteArray());
+            zos.closeEntry();
+        }
+        EntryFilter filter = EntryFilter.all().withSizeBetween(100, Long.MAX_VALUE);
+
+        // Act
+        ArchiveNode root = new ZipTreeBuilder(null, LoadOptions.defaults().withFilter(filter)).buildTree(tempZipFile);
+
+        // Assert
+        ZipEntry bundle = root.getChildren().get("bundle.zip").getEntry();
+        assertThat(bundle.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+        assertThat(root.getChildren().get("bundle.zip").getNestedArchiveRoot().getChildren())
+                .containsOnlyKeys("large.txt");
+    }
+
+    private static void writeSmallAndLarge(ZipOutputStream zos) throws IOException {
+        zos.putNextEntry(new ZipEntry("small.txt"));
+        zos.write(new byte[10]);
+        zos.closeEntry();
+        zos.putNextEntry(new ZipEntry("large.txt"));
+        zos.write(new byte[1000]);
+        zos.closeEntry();
+    }
+
+    @Test
+    void buildTree_recordsLocalHeaderOffsets_insideStoredNestedArchives() throws IOException {
+        // Arrange: a stored nested archive is indexed in place, through its own central directory
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ZipOutputStream innerZos = new ZipOutputStream(baos)) {
+            innerZos.putNextEntry(new ZipEntry("first.txt"));
+            innerZos.write("first".getBytes());
+            innerZos.closeEntry();
+            innerZos.putNextEntry(new ZipEntry("second.txt"));
+            innerZos.write("second".getBytes());
+            innerZos.closeEntry();
+        }
+        byte[] innerZipBytes = baos.toByteArray();
+        try (OutputStream os = Files.newOutputStream(tempZipFile);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.putNextEntry(new ZipEntry("readme.txt"));
+            zos.write("hello".getBytes());
+            zos.closeEntry();
+            ZipEntry nested = new ZipEntry("nested.zip");
+            nested.setMethod(ZipEntry.STORED);
+            nested.setSize(innerZipBytes.length);
+            CRC32 crc = new CRC32();
+            crc.update(innerZipBytes);
+            nested.setCrc(crc.getValue());
+            zos.putNextEntry(nested);
+            zos.write(innerZipBytes);
+            zos.closeEntry();
+        }
+
+        // Act
+        ArchiveNode root = builder.buildTree(tempZipFile);
+
+        // Assert: offsets agree with a sequential read of the same archives
+        ArchiveNode nestedNode = root.getChildren().get("nested.zip");
+        ArchiveNode nestedRoot = nestedNode.getNestedArchiveRoot();
+        assertThat(root.getChildren().get("readme.txt").getLocalHeaderOffset()).isZero();
+        assertThat(nestedNode.getLocalHeaderOffset()).isEqualTo(streamedOffsets(Files.readAllBytes(tempZipFile))[1]);
+        assertThat(nestedNode.getEntry().getCompressedSize()).isEqualTo(innerZipBytes.length);
+        assertThat(nestedRoot.getChildren().get("first.txt").getLocalHeaderOffset()).isZero();
+        assertThat(nestedRoot.getChildren().get("second.txt").getLocalHeaderOffset())
+                .isEqualTo(streamedOffsets(innerZipBytes)[1]);
+    }
+
+    @Test
+    void buildTree_withTruncatedArchive_fallsBackToLocalHeaders() throws IOException {
+        // Arrange: an archive cut off in its central directory
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
+            zos.putNextEntry(new ZipEntry("dir/a.txt"));
+            zos.write("a".getBytes());
+            zos.closeEntry();
+        }
+        byte[] whole = baos.toByteArray();
+        try (OutputStream os = Files.newOutputStream(tempZipFile)) {
+            os.write(whole, 0, whole.length - 30);
+        }
+
+        // Act
+        ArchiveNode root = builder.buildTree(tempZipFile);
+
+        // Assert
+        ArchiveNode file = root.getChildren().get("dir").getChildren().get("a.txt");
+        assertThat(file.getEntry().getSize()).isEqualTo(1);
+        assertThat(file.getLocalHeaderOffset()).isZero();
+    }
+
+    private static long[] streamedOffsets(byte[] zip) throws IOException {
+        long[] offsets = new long[2];
+        try (ReaderContext context = new ReaderContext();
+             ZipStreamReader reader = new ZipStreamReader(new ByteArrayInputStream(zip), context)) {
+            for (int i = 0; i < offsets.length && reader.getNextEntry() != null; i++) {
+                offsets[i] = reader.getLocalHeaderOffset();
+            }
+        }
+        return offsets;
+    }
 }